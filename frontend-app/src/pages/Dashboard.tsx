@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { motion, AnimatePresence } from 'framer-motion';
-import { apiService, Budget, Expense } from '../services/apiService';
+import { apiService, Budget, Expense, ExpenseChange } from '../services/apiService';
 import BudgetCard from '../components/BudgetCard';
 import ExpenseList from '../components/ExpenseList';
 import AddExpenseModal from '../components/AddExpenseModal';
@@ -19,15 +19,54 @@ const Dashboard: React.FC<DashboardProps> = ({ onLogout }) => {
   const [showAddExpense, setShowAddExpense] = useState(false);
   const [showAddBudget, setShowAddBudget] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const [budgetAlert, setBudgetAlert] = useState<string | null>(null);
   const userName = apiService.getStoredUserName();
 
   useEffect(() => {
     loadData();
+    let connectedBefore = false;
+    const unsubscribe = apiService.subscribeToChanges({
+      onOpen: () => {
+        // changes committed while disconnected were never pushed
+        if (connectedBefore) {
+          loadData(false);
+        }
+        connectedBefore = true;
+      },
+      onBudget: setBudget,
+      onExpense: applyExpenseChange,
+      onAlert: (alert) => {
+        setBudgetAlert(`You have used ${alert.threshold}% of your budget (${alert.amountUsed} of ${alert.amount}).`);
+      },
+    });
+    return unsubscribe;
   }, []);
 
-  const loadData = async () => {
+  const upsertExpense = (expense: Expense) => {
+    setExpenses(current => current.some(e => e.expenseid === expense.expenseid)
+      ? current.map(e => e.expenseid === expense.expenseid ? expense : e)
+      : [...current, expense]);
+  };
+
+  const applyExpenseChange = (change: ExpenseChange) => {
+    if (change.type === 'reload') {
+      apiService.getAllExpenses().then(setExpenses).catch(() => {});
+    } else if (change.type === 'deleted') {
+      setExpenses(current => current.filter(e => e.expenseid !== change.expenseid));
+    } else if (change.expense) {
+      upsertExpense(change.expense);
+    }
+  };
+
+  // a write taken by another node reaches the stream one change log poll later, so the budget is reloaded now
+  const reloadBudget = async () => {
+    const updatedBudget = await apiService.getBudget();
+    if (updatedBudget) setBudget(updatedBudget);
+  };
+
+  const loadData = async (showSpinner = true) => {
     try {
-      setLoading(true);
+      if (showSpinner) setLoading(true);
       setError(null);
       const [budgetData, expensesData] = await Promise.all([
         apiService.getBudget(),
@@ -77,11 +116,10 @@ const Dashboard: React.FC<DashboardProps> = ({ onLogout }) => {
   const handleAddExpense = async (expenseData: Omit<Expense, 'expenseid' | 'budget'>) => {
     try {
       const newExpense = await apiService.addExpense(expenseData);
-      setExpenses([...expenses, newExpense]);
+      // the pushed event may have added it already
+      upsertExpense(newExpense);
       setShowAddExpense(false);
-      // Reload budget to get updated amountUsed
-      const updatedBudget = await apiService.getBudget();
-      if (updatedBudget) setBudget(updatedBudget);
+      await reloadBudget();
     } catch (err: any) {
       alert(err.message || 'Failed to add expense. Make sure you have a budget first.');
     }
@@ -90,10 +128,8 @@ const Dashboard: React.FC<DashboardProps> = ({ onLogout }) => {
   const handleUpdateExpense = async (id: number, expenseData: Partial<Expense>) => {
     try {
       const updated = await apiService.updateExpense(id, expenseData);
-      setExpenses(expenses.map(e => e.expenseid === id ? updated : e));
-      // Reload budget to get updated amountUsed
-      const updatedBudget = await apiService.getBudget();
-      if (updatedBudget) setBudget(updatedBudget);
+      upsertExpense(updated);
+      await reloadBudget();
     } catch (err: any) {
       alert(err.message || 'Failed to update expense');
     }
@@ -105,10 +141,8 @@ const Dashboard: React.FC<DashboardProps> = ({ onLogout }) => {
     }
     try {
       await apiService.deleteExpense(id);
-      setExpenses(expenses.filter(e => e.expenseid !== id));
-      // Reload budget to get updated amountUsed
-      const updatedBudget = await apiService.getBudget();
-      if (updatedBudget) setBudget(updatedBudget);
+      setExpenses(current => current.filter(e => e.expenseid !== id));
+      await reloadBudget();
     } catch (err: any) {
       alert(err.message || 'Failed to delete expense');
     }
@@ -153,6 +187,13 @@ const Dashboard: React.FC<DashboardProps> = ({ onLogout }) => {
           </div>
         )}
 
+        {budgetAlert && (
+          <div className="budget-alert-banner">
+            <span>🔔</span> {budgetAlert}
+            <button onClick={() => setBudgetAlert(null)}>×</button>
+          </div>
+        )}
+
         <div className="budget-section">
           {budget ? (
             <BudgetCard 
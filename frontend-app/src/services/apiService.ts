@@ -30,6 +30,41 @@ export interface Expense {
   budget?: Budget;
 }
 
+export interface ExpensePage {
+  items: Expense[];
+  nextCursor: string | null;
+}
+
+export interface ExpenseFilter {
+  from?: string;          // yyyy-MM-dd, inclusive
+  to?: string;            // yyyy-MM-dd, exclusive
+  type?: string;
+  paymentMethod?: string;
+  limit?: number;
+}
+
+// Events pushed on /api/events
+export interface ExpenseChange {
+  type: 'added' | 'updated' | 'deleted' | 'reload';
+  expenseid: number | null;
+  expense: Expense | null;
+}
+
+export interface BudgetAlert {
+  budgetid: number;
+  threshold: number; // percent of the budget
+  amount: number;
+  amountUsed: number;
+}
+
+export interface ChangeHandlers {
+  onOpen?: () => void;
+  onClose?: () => void;
+  onBudget?: (budget: Budget | null) => void;
+  onExpense?: (change: ExpenseChange) => void;
+  onAlert?: (alert: BudgetAlert) => void;
+}
+
 export interface LoginCredentials {
   userName: string;
   password: string;
@@ -180,15 +215,28 @@ class ApiService {
     }
   }
 
-  async getAllExpenses(): Promise<Expense[]> {
+  async getExpensePage(filter: ExpenseFilter = {}, cursor?: string): Promise<ExpensePage> {
     try {
-      const response = await this.api.get<Expense[]>('/api/expenses');
+      const response = await this.api.get<ExpensePage>('/api/expenses', {
+        params: { ...filter, cursor }
+      });
       return response.data;
     } catch (error: any) {
       throw this.handleError(error);
     }
   }
 
+  async getAllExpenses(filter: ExpenseFilter = {}): Promise<Expense[]> {
+    const expenses: Expense[] = [];
+    let cursor: string | undefined;
+    do {
+      const page = await this.getExpensePage(filter, cursor);
+      expenses.push(...page.items);
+      cursor = page.nextCursor ?? undefined;
+    } while (cursor);
+    return expenses;
+  }
+
   async getExpenseById(id: number): Promise<Expense> {
     try {
       const response = await this.api.get<Expense>(`/api/expenses/${id}`);
@@ -215,6 +263,99 @@ class ApiService {
     }
   }
 
+  // ============= LIVE UPDATES =============
+
+  // Streams committed budget and expense changes. EventSource cannot send the Authorization header, so the
+  // stream is read with fetch. Reconnects with backoff until the returned function is called; onOpen runs on
+  // every connect, after which the caller should reload whatever may have changed while disconnected.
+  subscribeToChanges(handlers: ChangeHandlers): () => void {
+    const controller = new AbortController();
+    let retryDelay = 1000;
+
+    const dispatch = (event: string, data: string) => {
+      const payload = JSON.parse(data);
+      switch (event) {
+        case 'budget':
+          handlers.onBudget?.(payload);
+          break;
+        case 'expense':
+          handlers.onExpense?.(payload);
+          break;
+        case 'alert':
+          handlers.onAlert?.(payload);
+          break;
+      }
+    };
+
+    const connect = async () => {
+      while (!controller.signal.aborted) {
+        const token = this.getStoredToken();
+        if (!token) {
+          return;
+        }
+        try {
+          const response = await fetch(`${API_BASE_URL}/api/events`, {
+            headers: { Accept: 'text/event-stream', Authorization: `Bearer ${token}` },
+            signal: controller.signal,
+          });
+          if (response.status === 401) {
+            return;
+          }
+          if (response.ok && response.body) {
+            retryDelay = 1000;
+            handlers.onOpen?.();
+            try {
+              await this.readEvents(response.body, dispatch);
+            } finally {
+              handlers.onClose?.();
+            }
+          }
+        } catch (error: any) {
+          if (controller.signal.aborted) {
+            return;
+          }
+        }
+        await new Promise(resolve => setTimeout(resolve, retryDelay));
+        retryDelay = Math.min(retryDelay * 2, 30000);
+      }
+    };
+
+    connect();
+    return () => controller.abort();
+  }
+
+  // text/event-stream parsing: "event:" and "data:" lines up to a blank line; ":" lines are heartbeats
+  private async readEvents(body: ReadableStream<Uint8Array>, dispatch: (event: string, data: string) => void): Promise<void> {
+    const reader = body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    let event = 'message';
+    let data: string[] = [];
+    for (;;) {
+      const { done, value } = await reader.read();
+      if (done) {
+        return;
+      }
+      buffer += decoder.decode(value, { stream: true });
+      let newline: number;
+      while ((newline = buffer.indexOf('\n')) >= 0) {
+        const line = buffer.slice(0, newline).replace(/\r$/, '');
+        buffer = buffer.slice(newline + 1);
+        if (line === '') {
+          if (data.length > 0) {
+            dispatch(event, data.join('\n'));
+          }
+          event = 'message';
+          data = [];
+        } else if (line.startsWith('event:')) {
+          event = line.slice(6).trim();
+        } else if (line.startsWith('data:')) {
+          data.push(line.slice(5).replace(/^ /, ''));
+        }
+      }
+    }
+  }
+
   // ============= UTILITY METHODS =============
 
   getStoredToken(): string | null {
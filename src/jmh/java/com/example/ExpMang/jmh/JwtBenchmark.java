@@ -0,0 +1,103 @@
+package com.example.ExpMang.jmh;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.service.IdGenerator;
+import com.example.ExpMang.service.JWTService;
+import com.example.ExpMang.service.JwtKeyRing;
+import com.example.ExpMang.service.TokenRevocationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification. The first-seen variants cycle through more tokens than an uncached
+ * service can still hold, so every call parses and checks the signature the way a request with a
+ * token new to this node does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final int FIRST_SEEN_TOKENS = 16_384;
+
+    private JWTService jwtService;
+
+    private JWTService uncachedJwtService;
+
+    private String token;
+
+    private String[] firstSeenTokens;
+
+    private int next;
+
+    private AuthUser user;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JWTService(10_000, keys(), new IdGenerator(0), revocations(), new SimpleMeterRegistry());
+        token = jwtService.generateToken("bench");
+        user = new AuthUser(1, "bench");
+
+        uncachedJwtService = new JWTService(0, keys(), new IdGenerator(0), revocations(), new SimpleMeterRegistry());
+        firstSeenTokens = new String[FIRST_SEEN_TOKENS];
+        for (int i = 0; i < FIRST_SEEN_TOKENS; i++) {
+            firstSeenTokens[i] = uncachedJwtService.generateToken("bench-" + i);
+        }
+    }
+
+    // one in-memory key, the way a single node without a keyset file signs
+    private static JwtKeyRing keys() {
+        return new JwtKeyRing("", Duration.ofDays(1), Duration.ofMinutes(5), Duration.ofMinutes(1), new ObjectMapper());
+    }
+
+    // nothing revoked and nothing loaded; the in-memory check itself is part of every verification measured
+    private static TokenRevocationService revocations() {
+        return new TokenRevocationService(null, null, null, 10_000, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken("bench");
+    }
+
+    @Benchmark
+    public String extractUserName() {
+        return jwtService.extractUserName(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtService.validateToken(token, user);
+    }
+
+    @Benchmark
+    public String extractUserNameFirstSeen() {
+        return uncachedJwtService.extractUserName(nextFirstSeen());
+    }
+
+    @Benchmark
+    public boolean validateTokenFirstSeen() {
+        return uncachedJwtService.validateToken(nextFirstSeen(), user);
+    }
+
+    private String nextFirstSeen() {
+        next = (next + 1) & (FIRST_SEEN_TOKENS - 1);
+        return firstSeenTokens[next];
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.ExpMang.jmh;
+
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.ExpensePage;
+import com.example.ExpMang.model.ExpenseView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of response bodies at page sizes the API returns, using the same mapper
+ * configuration Spring MVC builds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String[] TYPES = {"food", "rent", "travel", "utilities", "health"};
+
+    @Param({"50", "200", "1000"})
+    private int size;
+
+    private ObjectMapper mapper;
+
+    private List<Expense> expenses;
+
+    private ExpensePage page;
+
+    private List<Budget> budgets;
+
+    @Setup
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        expenses = new ArrayList<>(size);
+        List<ExpenseView> views = new ArrayList<>(size);
+        budgets = new ArrayList<>(size);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Expense expense = new Expense();
+            expense.setExpenseId(1_000_000L + i);
+            expense.setAmount(100 + i);
+            expense.setDate(new Date(now - i * 3_600_000L));
+            expense.setDescription("expense number " + i);
+            expense.setType(TYPES[i % TYPES.length]);
+            expense.setPayment_Method(i % 2 == 0 ? "card" : "cash");
+            expenses.add(expense);
+            views.add(new ExpenseView(expense.getExpenseId(), expense.getAmount(), expense.getDate(),
+                    expense.getDescription(), expense.getType(), expense.getPayment_Method()));
+
+            Budget budget = new Budget();
+            budget.setBudgetId(2_000_000L + i);
+            budget.setAmount(50_000);
+            budget.setAmountUsed(100 * i);
+            budget.setStartDate(new Date(now));
+            budget.setEndDate(new Date(now + 30 * 86_400_000L));
+            budgets.add(budget);
+        }
+        page = new ExpensePage(views, "opaque-cursor");
+    }
+
+    @Benchmark
+    public byte[] expenseEntities() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(expenses);
+    }
+
+    @Benchmark
+    public byte[] expensePage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] budgetEntities() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(budgets);
+    }
+}
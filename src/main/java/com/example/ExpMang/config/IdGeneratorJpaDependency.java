@@ -0,0 +1,16 @@
+package com.example.ExpMang.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the {@code IdGenerator} before the entity manager factory, so {@code SnowflakeIdGenerator} always finds
+ * it, including for inserts made while the rest of the context starts.
+ */
+@Component
+public class IdGeneratorJpaDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+    public IdGeneratorJpaDependency() {
+        super("idGenerator");
+    }
+}
@@ -1,17 +1,25 @@
 package com.example.ExpMang.config;
 
 
+import com.example.ExpMang.model.AuthUser;
 import com.example.ExpMang.service.JWTService;
-import com.example.ExpMang.service.UserService;
+import com.example.ExpMang.service.PrincipalService;
+import com.example.ExpMang.service.ShardResolver;
+import com.example.ExpMang.service.VerifiedToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,51 +29,88 @@ import java.io.IOException;
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtFilter.class);
+
     @Autowired
     private JWTService jwtService;
 
     @Autowired
-    ApplicationContext context;
+    private PrincipalService principalService;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    // time spent authenticating the request, excluding the rest of the chain, by outcome
+    private Timer anonymousTimer;
+    private Timer authenticatedTimer;
+    private Timer rejectedTimer;
+
+    @PostConstruct
+    void registerTimers() {
+        anonymousTimer = timer("anonymous");
+        authenticatedTimer = timer("authenticated");
+        rejectedTimer = timer("rejected");
+    }
+
+    private Timer timer(String outcome) {
+        return Timer.builder("jwt.filter")
+                .description("Bearer token verification and principal lookup")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-
-        System.out.println("JwtFilter: Request URI: " + request.getRequestURI());
-        System.out.println("JwtFilter: Servlet Path: " + request.getServletPath());
+        Timer.Sample sample = Timer.start(registry);
+        Timer outcome = anonymousTimer;
 
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username  = null;
-
-        System.out.println("JwtFilter: Authorization Header: " + authHeader);
+        String username = null;
 
         if(authHeader != null && authHeader.startsWith("Bearer ")){
-            token = authHeader.substring(7);
-            username = jwtService.extractUserName(token);
-            System.out.println("JwtFilter: Token extracted: " + token);
-            System.out.println("JwtFilter: Username extracted: " + username);
+            VerifiedToken verified = jwtService.verify(authHeader.substring(7));
+            username = verified != null ? verified.username() : null;
+            outcome = verified != null ? authenticatedTimer : rejectedTimer;
+            if (verified == null) {
+                log.debug("Rejected bearer token for {} {}", request.getMethod(), request.getRequestURI());
+            }
         }
 
-        if(username != null && SecurityContextHolder.getContext().getAuthentication() == null){
-            System.out.println("JwtFilter: Attempting to load UserDetails for username: " + username);
-            UserDetails userDetails = context.getBean(UserService.class).loadUserByUsername(username);
-            System.out.println("JwtFilter: UserDetails loaded: " + userDetails);
-
-            if(jwtService.validateToken(token, userDetails)){
-                System.out.println("JwtFilter: Token is valid.");
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-                System.out.println("JwtFilter: Authentication set in SecurityContext.");
-            } else {
-                System.out.println("JwtFilter: Token is NOT valid.");
+        // cleared even when the principal lookup throws, so the pooled thread does not keep the shard
+        try {
+            if(username != null && SecurityContextHolder.getContext().getAuthentication() == null){
+                // the rest of the request, from the principal lookup on, works on the user's shard
+                ShardContext.bind(shardResolver.shardOf(username));
+                AuthUser principal = loadPrincipal(username);
+                if(principal != null){
+                    UsernamePasswordAuthenticationToken authToken =
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    // cleared with the request id by RequestTracingFilter
+                    MDC.put(RequestTracingFilter.USER_ID, Long.toString(principal.id()));
+                } else {
+                    log.debug("Token subject {} no longer exists", username);
+                    outcome = rejectedTimer;
+                }
             }
-        } else {
-            System.out.println("JwtFilter: Username is null or SecurityContext already has authentication.");
+
+            sample.stop(outcome);
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
         }
+    }
 
-        filterChain.doFilter(request, response);
+    private AuthUser loadPrincipal(String username) {
+        try {
+            return principalService.loadPrincipal(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
     }
 }
 
@@ -0,0 +1,41 @@
+package com.example.ExpMang.config;
+
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Carries the submitting thread's MDC, and with it the request id, and its {@link ShardContext} into tasks run
+ * on Spring's task executors, such as a streamed response body.
+ */
+@Component
+public class MdcTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        Integer shard = ShardContext.current();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            Integer previousShard = ShardContext.current();
+            ShardContext.bind(shard);
+            if (context != null) {
+                MDC.setContextMap(context);
+            } else {
+                MDC.clear();
+            }
+            try {
+                runnable.run();
+            } finally {
+                ShardContext.bind(previousShard);
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.service.JWTService;
+import com.example.ExpMang.service.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rate limits, checked ahead of {@link JwtFilter} so a flood is turned away before it costs a
+ * token parse, a principal lookup or any database work. {@code /login} and {@code /register} are limited per
+ * client address. The API is limited per user when the bearer token was verified before, which costs one
+ * digest and a cache hit; any other request, including one with a forged token, is limited per address, so
+ * naming someone else in a token cannot use up their requests. Behind a load balancer the address is the
+ * client's from {@code X-Forwarded-For}, which Tomcat only honours from {@code server.tomcat.remoteip.internal-proxies}.
+ * <p>
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again, updated with one
+ * compare-and-set per request. Buckets live in a bounded cache and are dropped once idle long enough to have
+ * refilled, which loses nothing; under more clients than the cache holds, the least recent lose their history.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final JWTService jwtService;
+
+    private final boolean enabled;
+
+    private final Route login;
+
+    private final Route expenses;
+
+    private final Route api;
+
+    public RateLimitFilter(JWTService jwtService,
+                           @Value("${expmang.ratelimit.enabled:true}") boolean enabled,
+                           @Value("${expmang.ratelimit.login.capacity:20}") int loginCapacity,
+                           @Value("${expmang.ratelimit.login.refill-every:3s}") Duration loginRefill,
+                           @Value("${expmang.ratelimit.expenses.capacity:100}") int expensesCapacity,
+                           @Value("${expmang.ratelimit.expenses.refill-every:20ms}") Duration expensesRefill,
+                           @Value("${expmang.ratelimit.api.capacity:200}") int apiCapacity,
+                           @Value("${expmang.ratelimit.api.refill-every:10ms}") Duration apiRefill,
+                           @Value("${expmang.ratelimit.maximum-clients:100000}") long maximumClients,
+                           MeterRegistry registry) {
+        this.jwtService = jwtService;
+        this.enabled = enabled;
+        this.login = new Route("login", loginCapacity, loginRefill, maximumClients, registry);
+        this.expenses = new Route("expenses", expensesCapacity, expensesRefill, maximumClients, registry);
+        this.api = new Route("api", apiCapacity, apiRefill, maximumClients, registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Route route = enabled ? routeOf(request) : null;
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String client = route == login ? "ip:" + request.getRemoteAddr() : clientOf(request);
+        long waitNanos = route.acquire(client);
+        if (waitNanos > 0) {
+            route.rejected.increment();
+            log.debug("Rate limited {} on {} for {} ms", client, route.name, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, try again later");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Route routeOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if ("POST".equals(request.getMethod()) && (path.equals("/login") || path.equals("/register"))) {
+            return login;
+        }
+        if (path.equals("/api/expenses") || path.startsWith("/api/expenses/")) {
+            return expenses;
+        }
+        return path.startsWith("/api/") ? api : null;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            VerifiedToken verified = jwtService.cached(authHeader.substring(7));
+            if (verified != null) {
+                return "user:" + verified.username();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * One limit: a bucket per client holding up to {@code capacity} requests, refilled by one every interval.
+     */
+    private static final class Route {
+
+        private final String name;
+
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        private final Cache<String, AtomicLong> buckets;
+
+        private final Counter rejected;
+
+        Route(String name, int capacity, Duration refillEvery, long maximumClients, MeterRegistry registry) {
+            this.name = name;
+            this.intervalNanos = refillEvery.toNanos();
+            this.burstNanos = capacity * intervalNanos;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumClients)
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .build();
+            this.rejected = Counter.builder("ratelimit.rejected")
+                    .description("Requests turned away with 429")
+                    .tag("route", name)
+                    .register(registry);
+        }
+
+        // 0 when the request is allowed and counted, otherwise how long until it would be
+        long acquire(String client) {
+            AtomicLong fullAt = buckets.get(client, key -> new AtomicLong(System.nanoTime()));
+            while (true) {
+                long now = System.nanoTime();
+                long current = fullAt.get();
+                long next = (current - now > 0 ? current : now) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
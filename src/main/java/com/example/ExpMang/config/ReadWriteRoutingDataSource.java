@@ -0,0 +1,113 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.model.AuthUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections everywhere else.
+ * Replicas take turns; one that fails to give a connection is skipped for {@code retryAfter}, and when
+ * none is available the primary serves the read. Users with a recent write of their own, as tracked by
+ * {@link ReadYourWritesPins}, read from the primary.
+ * <p>
+ * The transaction's read-only flag is only known once it has begun, so this must sit behind a
+ * {@code LazyConnectionDataSourceProxy}, which defers the real connection to the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final ReadYourWritesPins pins;
+
+    private final long retryAfterNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    // System.nanoTime() until which each replica is skipped
+    private final AtomicLongArray downUntil;
+
+    private final Counter replicaReads;
+
+    private final Counter pinnedReads;
+
+    private final Counter fallbackReads;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWritesPins pins,
+                                      Duration retryAfter, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.pins = pins;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.downUntil = new AtomicLongArray(replicas.size());
+        this.replicaReads = reads(registry, "replica");
+        this.pinnedReads = reads(registry, "primary-pinned");
+        this.fallbackReads = reads(registry, "primary-fallback");
+    }
+
+    private static Counter reads(MeterRegistry registry, String target) {
+        return Counter.builder("datasource.reads")
+                .description("Connections handed to read-only transactions")
+                .tag("target", target)
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        if (pinnedToPrimary()) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        int start = replicas.isEmpty() ? 0 : Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            long now = System.nanoTime();
+            if (now - downUntil.get(index) < 0) {
+                continue;
+            }
+            try {
+                Connection connection = replicas.get(index).getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                downUntil.set(index, now + retryAfterNanos);
+                log.warn("Replica {} unavailable, skipping it for {} ms: {}", index, retryAfterNanos / 1_000_000, e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    // explicit credentials are for administrative use, such as schema tools, and always go to the primary
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    private boolean pinnedToPrimary() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.getPrincipal() instanceof AuthUser user
+                && pins.isPinned(user.id());
+    }
+}
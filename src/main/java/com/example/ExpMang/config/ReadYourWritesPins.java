@@ -0,0 +1,43 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.service.DataChangeEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Remembers the users who wrote within the last {@code window}, so their reads go to the primary until the
+ * replicas have caught up. The window has to exceed the replication lag. The other nodes pin the user when
+ * {@link com.example.ExpMang.service.DataChangeLog} passes the write on to them, so a read sent to another node
+ * within its poll interval of the write can still come from a replica.
+ */
+public class ReadYourWritesPins {
+
+    private final Cache<Long, Boolean> pinned;
+
+    public ReadYourWritesPins(Duration window, long maximumSize) {
+        pinned = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public boolean isPinned(long userId) {
+        return pinned.getIfPresent(userId) != null;
+    }
+
+    public void pin(long userId) {
+        pinned.put(userId, Boolean.TRUE);
+    }
+
+    // first, so the pin is in place before the caches and ETags let the user see that anything changed
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChange(DataChangeEvent event) {
+        pin(event.userId());
+    }
+}
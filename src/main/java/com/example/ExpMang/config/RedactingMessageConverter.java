@@ -0,0 +1,34 @@
+package com.example.ExpMang.config;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.regex.Pattern;
+
+/**
+ * Log message converter that masks bearer tokens, JWTs and password or secret values wherever they
+ * appear in a formatted message, so a careless log statement cannot leak credentials.
+ */
+public class RedactingMessageConverter extends MessageConverter {
+
+    private static final Pattern BEARER = Pattern.compile("(?i)(bearer\\s+)[A-Za-z0-9._~+/=-]+");
+
+    private static final Pattern JWT = Pattern.compile("eyJ[A-Za-z0-9_-]*\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]*");
+
+    private static final Pattern SECRET = Pattern.compile(
+            "(?i)(\"?(?:password|passwd|secret|access_token|token)\"?\\s*[=:]\\s*\"?)[^\"',;&}\\s]+");
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return redact(super.convert(event));
+    }
+
+    static String redact(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        String redacted = BEARER.matcher(message).replaceAll("$1[REDACTED]");
+        redacted = JWT.matcher(redacted).replaceAll("[REDACTED]");
+        return SECRET.matcher(redacted).replaceAll("$1[REDACTED]");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.ExpMang.config;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import org.springframework.boot.logging.logback.ExtendedWhitespaceThrowableProxyConverter;
+
+/**
+ * Stack trace converter that applies the masking of {@link RedactingMessageConverter} to exception messages,
+ * causes included, since they often quote the request or the value that failed to parse.
+ */
+public class RedactingThrowableConverter extends ExtendedWhitespaceThrowableProxyConverter {
+
+    @Override
+    protected String throwableProxyToString(IThrowableProxy tp) {
+        return RedactingMessageConverter.redact(super.throwableProxyToString(tp));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ExpMang.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to the replicas listed in {@code expmang.datasource.replica-urls} and the rest
+ * to {@code spring.datasource}. Without replica urls none of this is created and Spring Boot's single
+ * datasource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty("expmang.datasource.replica-urls")
+public class ReplicaDataSourceConfig {
+
+    private final List<HikariDataSource> replicas = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesPins readYourWritesPins(@Value("${expmang.datasource.read-your-writes-window:5s}") Duration window,
+                                                 @Value("${expmang.datasource.read-your-writes-maximum-size:100000}") long maximumSize) {
+        return new ReadYourWritesPins(window, maximumSize);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 DataSourceProperties properties,
+                                 ReadYourWritesPins pins,
+                                 @Value("${expmang.datasource.replica-urls}") List<String> urls,
+                                 @Value("${expmang.datasource.replica-username:${spring.datasource.username:}}") String username,
+                                 @Value("${expmang.datasource.replica-password:${spring.datasource.password:}}") String password,
+                                 @Value("${expmang.datasource.replica-pool-size:20}") int poolSize,
+                                 @Value("${expmang.datasource.replica-connection-timeout:1s}") Duration connectionTimeout,
+                                 @Value("${expmang.datasource.replica-retry-after:30s}") Duration retryAfter,
+                                 MeterRegistry registry) {
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            // a replica that is down at startup is skipped until it comes back instead of failing the boot
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(replica);
+        }
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                primaryDataSource, List.copyOf(replicas), pins, retryAfter, registry);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @PreDestroy
+    public void closeReplicas() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.service.IdGenerator;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Gives every request a correlation id, taken from {@code X-Request-Id} when the caller sends a sane one,
+ * and keeps it in the MDC for every log line written while the request is served. A sampled share of
+ * requests is summarized on the {@code expmang.trace} logger; with that logger off, sampling costs nothing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    public static final String REQUEST_ID = "requestId";
+
+    public static final String USER_ID = "userId";
+
+    private static final Logger trace = LoggerFactory.getLogger("expmang.trace");
+
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Value("${expmang.tracing.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+            requestId = Long.toString(idGenerator.nextId(), 36);
+        }
+        MDC.put(REQUEST_ID, requestId);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+
+        boolean sampled = trace.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        long start = sampled ? System.nanoTime() : 0;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                trace.info("{} {} -> {} in {} us, user {}", request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), (System.nanoTime() - start) / 1000, MDC.get(USER_ID));
+            }
+            MDC.remove(USER_ID);
+            MDC.remove(REQUEST_ID);
+        }
+    }
+}
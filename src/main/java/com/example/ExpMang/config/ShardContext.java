@@ -0,0 +1,50 @@
+package com.example.ExpMang.config;
+
+import java.util.function.Supplier;
+
+/**
+ * The database shard the current thread works on. {@link ShardRoutingDataSource} hands out connections to it;
+ * with nothing bound they go to shard 0, which is also the only shard when sharding is not configured.
+ * A request is bound by {@link JwtFilter} once its user is known, login and registration by
+ * {@code UserService}, and background work binds each shard in turn through {@code ShardResolver}.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(Integer shard) {
+        if (shard != null) {
+            CURRENT.set(shard);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    public static void run(int shard, Runnable work) {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
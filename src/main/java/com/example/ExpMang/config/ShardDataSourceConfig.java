@@ -0,0 +1,85 @@
+package com.example.ExpMang.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads users over the databases listed in {@code expmang.datasource.shard-urls}, with {@code spring.datasource}
+ * as shard 0. A user and all their budgets and expenses live on one shard, chosen by {@code ShardResolver}.
+ * Without shard urls none of this is created and Spring Boot's single datasource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty("expmang.datasource.shard-urls")
+public class ShardDataSourceConfig {
+
+    private final List<HikariDataSource> shards = new ArrayList<>();
+
+    public ShardDataSourceConfig(@Value("${expmang.datasource.replica-urls:}") List<String> replicaUrls) {
+        if (replicaUrls.stream().anyMatch(url -> !url.isBlank())) {
+            throw new IllegalStateException("expmang.datasource.replica-urls cannot be combined with shard-urls");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 DataSourceProperties properties,
+                                 @Value("${expmang.datasource.shard-urls}") List<String> urls,
+                                 @Value("${expmang.datasource.shard-username:${spring.datasource.username:}}") String username,
+                                 @Value("${expmang.datasource.shard-password:${spring.datasource.password:}}") String password,
+                                 @Value("${expmang.datasource.shard-pool-size:10}") int poolSize,
+                                 @Value("${expmang.datasource.shard-connection-timeout:30s}") Duration connectionTimeout,
+                                 MeterRegistry registry) {
+        shards.add(primaryDataSource);
+        for (String url : urls) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setJdbcUrl(url.trim());
+            shard.setUsername(username);
+            shard.setPassword(password);
+            shard.setDriverClassName(properties.determineDriverClassName());
+            shard.setMaximumPoolSize(poolSize);
+            shard.setConnectionTimeout(connectionTimeout.toMillis());
+            shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(List.copyOf(shards));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(@Value("${expmang.datasource.shard-urls}") List<String> urls) {
+        int shardCount = urls.size() + 1;
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(new ShardSchemaIntegrator(shardCount)));
+    }
+
+    // shard 0 is Spring's bean and closed by it
+    @PreDestroy
+    public void closeShards() {
+        shards.stream().skip(1).forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ExpMang.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.DelayedDropAction;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hibernate runs its schema management ({@code spring.jpa.hibernate.ddl-auto}) on whatever connection it is
+ * given, which is shard 0's. This runs the same action on every other shard, so all shards have the same
+ * tables; the drops of {@code create-drop} run when the session factory closes.
+ */
+class ShardSchemaIntegrator implements Integrator {
+
+    private final int shardCount;
+
+    private final Map<Integer, DelayedDropAction> drops = new TreeMap<>();
+
+    ShardSchemaIntegrator(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        ServiceRegistry registry = sessionFactory.getServiceRegistry();
+        Map<String, Object> settings = registry.requireService(ConfigurationService.class).getSettings();
+        for (int shard = 1; shard < shardCount; shard++) {
+            int target = shard;
+            ShardContext.run(target, () -> SchemaManagementToolCoordinator.process(
+                    metadata, registry, settings, action -> drops.put(target, action)));
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        drops.forEach((shard, drop) -> ShardContext.run(shard, () -> drop.perform(serviceRegistry)));
+        drops.clear();
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.ExpMang.controller;
 
+import com.example.ExpMang.model.AuthUser;
 import com.example.ExpMang.model.Budget;
-import com.example.ExpMang.model.User;
+import com.example.ExpMang.model.BudgetView;
 import com.example.ExpMang.service.BudgetService;
+import com.example.ExpMang.service.DataVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/budgets")
@@ -15,31 +20,47 @@ public class BudgetController {
     @Autowired
     private BudgetService budgetService;
 
+    @Autowired
+    private DataVersionService dataVersionService;
+
     @PostMapping
     @PreAuthorize("isAuthenticated()")
     public Budget createBudget(@RequestBody Budget budget, Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        AuthUser user = (AuthUser) authentication.getPrincipal();
         return budgetService.createBudget(budget, user);
     }
 
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public Budget getBudget(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+    public BudgetView getBudget(Authentication authentication, ServletWebRequest request) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        if (dataVersionService.checkNotModified(request, user.id())) {
+            return null;
+        }
         return budgetService.getBudget(user);
     }
 
+    @GetMapping("/periods")
+    @PreAuthorize("isAuthenticated()")
+    public List<BudgetView> getPeriods(Authentication authentication, ServletWebRequest request) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        if (dataVersionService.checkNotModified(request, user.id())) {
+            return null;
+        }
+        return budgetService.getPeriods(user);
+    }
+
     @PutMapping
     @PreAuthorize("isAuthenticated()")
     public Budget updateBudget(@RequestBody Budget budget, Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        AuthUser user = (AuthUser) authentication.getPrincipal();
         return budgetService.updateBudget(budget, user);
     }
 
     @DeleteMapping
     @PreAuthorize("isAuthenticated()")
     public void deleteBudget(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        AuthUser user = (AuthUser) authentication.getPrincipal();
         budgetService.deleteBudget(user);
     }
 }
@@ -0,0 +1,29 @@
+package com.example.ExpMang.controller;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.service.EventStreamService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    // "budget", "expense" and "alert" events as they are committed, see EventStreamService
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public SseEmitter events(Authentication authentication, HttpServletResponse response) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        // nginx would otherwise hold events back until its buffer fills
+        response.setHeader("X-Accel-Buffering", "no");
+        return eventStreamService.subscribe(user);
+    }
+}
@@ -1,14 +1,37 @@
 package com.example.ExpMang.controller;
 
+import com.example.ExpMang.model.AuthUser;
 import com.example.ExpMang.model.Expense;
-import com.example.ExpMang.model.User;
+import com.example.ExpMang.model.ExpenseCursor;
+import com.example.ExpMang.model.ExpensePage;
+import com.example.ExpMang.model.ExpenseQuery;
+import com.example.ExpMang.model.ExpenseView;
+import com.example.ExpMang.model.ImportResult;
+import com.example.ExpMang.model.IngestStatus;
+import com.example.ExpMang.service.DataVersionService;
+import com.example.ExpMang.service.ExpenseExportService;
+import com.example.ExpMang.service.ExpenseImportService;
+import com.example.ExpMang.service.ExpenseIngestService;
 import com.example.ExpMang.service.ExpenseService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/expenses")
@@ -17,35 +40,155 @@ public class ExpenseController {
     @Autowired
     private ExpenseService expenseService;
 
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
+    @Autowired
+    private ExpenseIngestService expenseIngestService;
+
+    @Autowired
+    private ExpenseExportService expenseExportService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    // "Prefer: respond-async" trades durability on return for throughput, see ExpenseIngestService
     @PostMapping
     @PreAuthorize("isAuthenticated()")
-    public Expense addExpense(@RequestBody Expense expense, Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        return expenseService.addExpense(expense, user);
+    public ResponseEntity<?> addExpense(@RequestBody Expense expense,
+                                        @RequestHeader(name = "Prefer", required = false) String prefer,
+                                        Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        if (prefer == null || !prefer.contains("respond-async") || !expenseIngestService.isEnabled()) {
+            return ResponseEntity.ok(expenseService.addExpense(expense, user));
+        }
+        IngestStatus status = expenseIngestService.accept(expense, user);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No budget to add the expense to");
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/expenses/" + status.expenseid() + "/status"))
+                .body(status);
+    }
+
+    @GetMapping("/{id}/status")
+    @PreAuthorize("isAuthenticated()")
+    public IngestStatus getIngestStatus(@PathVariable Long id, Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        IngestStatus status = expenseIngestService.status(id, user);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return status;
+    }
+
+    @PostMapping(path = "/import", consumes = "text/csv")
+    @PreAuthorize("isAuthenticated()")
+    public ImportResult importCsv(InputStream body, Authentication authentication) throws IOException {
+        return importExpenses(body, ExpenseImportService.Format.CSV, authentication);
+    }
+
+    @PostMapping(path = "/import", consumes = "application/x-ndjson")
+    @PreAuthorize("isAuthenticated()")
+    public ImportResult importNdjson(InputStream body, Authentication authentication) throws IOException {
+        return importExpenses(body, ExpenseImportService.Format.NDJSON, authentication);
+    }
+
+    private ImportResult importExpenses(InputStream body, ExpenseImportService.Format format, Authentication authentication) throws IOException {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        ImportResult result = expenseImportService.importExpenses(body, format, user);
+        if (result == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No budget to import expenses into");
+        }
+        return result;
+    }
+
+    // written to the response as the rows are read, on an async thread; compressed when the client accepts gzip
+    @GetMapping("/export")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(@RequestParam(defaultValue = "csv") String format,
+                                                                @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        ExpenseImportService.Format parsed = switch (format.toLowerCase()) {
+            case "csv" -> ExpenseImportService.Format.CSV;
+            case "ndjson" -> ExpenseImportService.Format.NDJSON;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format " + format);
+        };
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                expenseExportService.export(user, parsed, compressed);
+                compressed.finish();
+            } else {
+                expenseExportService.export(user, parsed, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(parsed == ExpenseImportService.Format.CSV ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("expenses." + parsed.name().toLowerCase()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public List<Expense> getAllExpenses(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        return expenseService.getAllExpenses(user);
+    public ExpensePage getAllExpenses(@RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "" + ExpenseQuery.DEFAULT_LIMIT) int limit,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                                      @RequestParam(required = false) String type,
+                                      @RequestParam(required = false) String paymentMethod,
+                                      @RequestParam(required = false) Long budgetId,
+                                      Authentication authentication,
+                                      ServletWebRequest request) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        ExpenseCursor after;
+        try {
+            after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (dataVersionService.checkNotModified(request, user.id())) {
+            return null;
+        }
+        ExpensePage page = expenseService.getExpensePage(user, budgetId, new ExpenseQuery(from, to, type, paymentMethod, after, limit));
+        if (page == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such budget period");
+        }
+        return page;
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public Expense getExpenseById(@PathVariable Long id) {
-        return expenseService.getExpenseById(id);
+    public ExpenseView getExpenseById(@PathVariable Long id, Authentication authentication, ServletWebRequest request) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        if (dataVersionService.checkNotModified(request, user.id())) {
+            return null;
+        }
+        ExpenseView expense = expenseService.getExpenseById(id, user);
+        if (expense == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such expense");
+        }
+        return expense;
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public Expense updateExpense(@PathVariable Long id, @RequestBody Expense expense) {
-        return expenseService.updateExpense(id, expense);
+    public Expense updateExpense(@PathVariable Long id, @RequestBody Expense expense, Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        return expenseService.updateExpense(id, expense, user);
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public void deleteExpense(@PathVariable Long id) {
-        expenseService.deleteExpense(id);
+    public void deleteExpense(@PathVariable Long id, Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        expenseService.deleteExpense(id, user);
     }
 }
@@ -0,0 +1,36 @@
+package com.example.ExpMang.controller;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.SpendingSummary;
+import com.example.ExpMang.service.RollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/summary")
+public class SummaryController {
+
+    @Autowired
+    private RollupService rollupService;
+
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public SpendingSummary getSummary(Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        return rollupService.summarize(user);
+    }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("isAuthenticated()")
+    public SpendingSummary rebuild(Authentication authentication) {
+        AuthUser user = (AuthUser) authentication.getPrincipal();
+        if (!rollupService.rebuild(user)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No budget to summarize");
+        }
+        return rollupService.summarize(user);
+    }
+}
@@ -3,9 +3,14 @@ package com.example.ExpMang.controller;
 import com.example.ExpMang.model.User;
 import com.example.ExpMang.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -24,4 +29,13 @@ public class UserController {
     public String login(@RequestBody User user){
         return service.verify(user);
     }
+
+    // ?everywhere=true also ends the user's sessions on other devices
+    @PostMapping("/logout")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                       @RequestParam(defaultValue = "false") boolean everywhere) {
+        service.logout(authorization.substring("Bearer ".length()), everywhere);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.ExpMang.model;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lightweight principal placed in the SecurityContext for token-authenticated requests,
+ * so the filter never has to hydrate the JPA {@link User} entity.
+ */
+public record AuthUser(long id, String userName) implements UserDetails {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of();
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return userName;
+    }
+}
@@ -8,10 +8,15 @@ import jakarta.persistence.*;
 import java.util.Date;
 import java.util.List;
 
+/**
+ * One budget period of a user. Creating a new period closes the current one; a closed period can later be
+ * archived, after which its expenses live in a compressed file instead of the expense table.
+ */
 @Entity
+@Table(indexes = @Index(name = "idx_budget_user_closed", columnList = "user_userid, closedAt"))
 public class Budget {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     @JsonProperty("budgetid")
     private Long budgetid;
     @JsonFormat(pattern="yyyy-MM-dd")
@@ -20,6 +25,9 @@ public class Budget {
     private Date endDate;
     private int amount;
     private int amountUsed;
+    // null while this is the user's current period
+    private Date closedAt;
+    private boolean archived;
 
     public Long getBudgetId() {
         return budgetid;
@@ -61,6 +69,22 @@ public class Budget {
         this.amountUsed = amountUsed;
     }
 
+    public Date getClosedAt() {
+        return closedAt;
+    }
+
+    public void setClosedAt(Date closedAt) {
+        this.closedAt = closedAt;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
     public User getUser() {
         return user;
     }
@@ -82,7 +106,7 @@ public class Budget {
     }
 
     @JsonIgnore
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
     @JsonIgnore
@@ -0,0 +1,17 @@
+package com.example.ExpMang.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.util.Date;
+
+/**
+ * Immutable read model of a budget period, serialized with the same properties as {@link Budget}.
+ */
+public record BudgetView(Long budgetid,
+                         @JsonFormat(pattern = "yyyy-MM-dd") Date startDate,
+                         @JsonFormat(pattern = "yyyy-MM-dd") Date endDate,
+                         int amount,
+                         int amountUsed,
+                         Date closedAt,
+                         boolean archived) {
+}
@@ -0,0 +1,71 @@
+package com.example.ExpMang.model;
+
+import com.example.ExpMang.service.DataChangeEvent;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A budget or expense change, written in the transaction of the change, so that the other nodes can pass it
+ * on to their caches and event streams. The id tells when it was made, the origin which running process made it,
+ * so that process can skip its own changes. Kept for a minute.
+ */
+@Entity
+@Table(name = "data_change")
+public class DataChange {
+
+    @Id
+    @SnowflakeId
+    private Long changeid;
+
+    private long userid;
+
+    @Enumerated(EnumType.STRING)
+    private DataChangeEvent.Kind kind;
+
+    private Long entityid;
+
+    private long origin;
+
+    public Long getChangeid() {
+        return changeid;
+    }
+
+    public void setChangeid(Long changeid) {
+        this.changeid = changeid;
+    }
+
+    public long getUserid() {
+        return userid;
+    }
+
+    public void setUserid(long userid) {
+        this.userid = userid;
+    }
+
+    public DataChangeEvent.Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(DataChangeEvent.Kind kind) {
+        this.kind = kind;
+    }
+
+    public Long getEntityid() {
+        return entityid;
+    }
+
+    public void setEntityid(Long entityid) {
+        this.entityid = entityid;
+    }
+
+    public long getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(long origin) {
+        this.origin = origin;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ExpMang.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A counter per user, bumped in the transaction of every budget or expense write, that the ETags of the read
+ * endpoints are made from. Kept out of the user row so that bumping it never waits on the user lock taken by
+ * budget changes.
+ */
+@Entity
+@Table(name = "data_version")
+public class DataVersion {
+
+    @Id
+    private long userid;
+
+    private long version;
+
+    public long getUserid() {
+        return userid;
+    }
+
+    public void setUserid(long userid) {
+        this.userid = userid;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
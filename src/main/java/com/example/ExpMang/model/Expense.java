@@ -7,9 +7,15 @@ import jakarta.persistence.*;
 import java.util.Date;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_expense_budget_date", columnList = "budget_budgetid, date, expenseid"),
+        @Index(name = "idx_expense_budget_type_date", columnList = "budget_budgetid, type, date, expenseid"),
+        @Index(name = "idx_expense_budget_payment_date", columnList = "budget_budgetid, payment_Method, date, expenseid")
+})
 public class Expense {
+    // assigned in-process before insert, which lets Hibernate batch inserts unlike IDENTITY columns
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     @JsonProperty("expenseid")
     private Long expenseid;
     private int amount;
@@ -97,7 +103,9 @@ public class Expense {
                 '}';
     }
 
+    // no foreign key: MySQL cannot partition a table that has one, see ExpensePartitionService
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Budget budget;
 }
@@ -0,0 +1,33 @@
+package com.example.ExpMang.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position of the last row of an expense page in (date desc, expenseid desc) order.
+ * Clients only ever see the opaque encoded form.
+ */
+public record ExpenseCursor(Date date, long expenseid) {
+
+    public static ExpenseCursor after(ExpenseView expense) {
+        return new ExpenseCursor(expense.date(), expense.expenseid());
+    }
+
+    public String encode() {
+        String raw = (date != null ? Long.toString(date.getTime()) : "") + ":" + expenseid;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static ExpenseCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int split = raw.indexOf(':');
+            String millis = raw.substring(0, split);
+            Date date = millis.isEmpty() ? null : new Date(Long.parseLong(millis));
+            return new ExpenseCursor(date, Long.parseLong(raw.substring(split + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.ExpMang.model;
+
+import java.util.List;
+
+public record ExpensePage(List<ExpenseView> items, String nextCursor) {
+}
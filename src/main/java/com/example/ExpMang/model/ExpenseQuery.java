@@ -0,0 +1,16 @@
+package com.example.ExpMang.model;
+
+import java.util.Date;
+
+/**
+ * Filters and position for one page of a user's expenses. Null fields are not applied.
+ */
+public record ExpenseQuery(Date from, Date to, String type, String paymentMethod, ExpenseCursor after, int limit) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    public ExpenseQuery {
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.ExpMang.model;
+
+import java.util.Date;
+
+/**
+ * Read model of an expense, selected column by column and serialized with the same properties as {@link Expense}.
+ */
+public record ExpenseView(Long expenseid,
+                          int amount,
+                          Date date,
+                          String description,
+                          String type,
+                          String payment_Method) {
+}
@@ -0,0 +1,9 @@
+package com.example.ExpMang.model;
+
+import java.util.List;
+
+public record ImportResult(int imported, int rejected, List<RowError> errors, long elapsedMillis, double rowsPerSecond) {
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ExpMang.model;
+
+/**
+ * Where an expense accepted for write-behind ingestion stands. Only {@code COMMITTED} means it is durable.
+ */
+public record IngestStatus(long expenseid, State state) {
+
+    public enum State {
+        PENDING,
+        COMMITTED,
+        FAILED
+    }
+}
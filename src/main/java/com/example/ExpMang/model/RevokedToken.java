@@ -0,0 +1,61 @@
+package com.example.ExpMang.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.util.Date;
+
+/**
+ * A token revoked before its expiry, by its {@code jti}. Kept until the token would have expired anyway, so
+ * revocations survive restarts and reach the other nodes.
+ */
+@Entity
+@Table(name = "revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_revoked", columnList = "revokedAt"),
+        @Index(name = "idx_revoked_token_expires", columnList = "expiresAt")
+})
+public class RevokedToken {
+
+    @Id
+    private String jti;
+
+    private String userName;
+
+    private Date expiresAt;
+
+    private Date revokedAt;
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Date expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Date getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(Date revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+}
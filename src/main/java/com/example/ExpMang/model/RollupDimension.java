@@ -0,0 +1,7 @@
+package com.example.ExpMang.model;
+
+public enum RollupDimension {
+    CATEGORY,
+    MONTH,
+    PAYMENT_METHOD
+}
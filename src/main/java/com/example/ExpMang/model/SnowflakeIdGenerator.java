@@ -0,0 +1,28 @@
+package com.example.ExpMang.model;
+
+import com.example.ExpMang.service.IdGenerator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+
+public class SnowflakeIdGenerator implements BeforeExecutionGenerator {
+
+    // an id reserved before the insert, as the write-behind ingestion does, is kept; a primitive id never set is 0
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return currentValue != null && !currentValue.equals(0L) ? currentValue : IdGenerator.shared().nextId();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
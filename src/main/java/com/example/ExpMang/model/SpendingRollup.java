@@ -0,0 +1,45 @@
+package com.example.ExpMang.model;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+/**
+ * Running total and count of a budget's expenses in one bucket of one dimension, kept up to date
+ * in the same transaction as every expense write.
+ */
+@Entity
+@Table(name = "spending_rollup")
+public class SpendingRollup {
+
+    @EmbeddedId
+    private SpendingRollupKey id;
+
+    private long total;
+
+    private long count;
+
+    public SpendingRollupKey getId() {
+        return id;
+    }
+
+    public void setId(SpendingRollupKey id) {
+        this.id = id;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
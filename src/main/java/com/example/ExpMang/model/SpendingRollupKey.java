@@ -0,0 +1,52 @@
+package com.example.ExpMang.model;
+
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class SpendingRollupKey implements Serializable {
+
+    private Long budgetid;
+
+    @Enumerated(EnumType.STRING)
+    private RollupDimension dimension;
+
+    private String bucket;
+
+    protected SpendingRollupKey() {
+    }
+
+    public SpendingRollupKey(Long budgetid, RollupDimension dimension, String bucket) {
+        this.budgetid = budgetid;
+        this.dimension = dimension;
+        this.bucket = bucket;
+    }
+
+    public Long getBudgetid() {
+        return budgetid;
+    }
+
+    public RollupDimension getDimension() {
+        return dimension;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SpendingRollupKey that)) return false;
+        return Objects.equals(budgetid, that.budgetid) && dimension == that.dimension && Objects.equals(bucket, that.bucket);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(budgetid, dimension, bucket);
+    }
+}
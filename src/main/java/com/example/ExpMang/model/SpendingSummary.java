@@ -0,0 +1,11 @@
+package com.example.ExpMang.model;
+
+import java.util.Map;
+
+public record SpendingSummary(Map<String, BucketTotal> byCategory,
+                              Map<String, BucketTotal> byMonth,
+                              Map<String, BucketTotal> byPaymentMethod) {
+
+    public record BucketTotal(long total, long count) {
+    }
+}
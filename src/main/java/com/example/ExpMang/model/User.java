@@ -7,13 +7,15 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "user")
+@Table(name = "user", indexes = @Index(name = "idx_user_tokens_not_before", columnList = "tokensNotBefore"))
 public class User implements UserDetails {
+    // unique across shards, unlike an auto-increment column
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private long userid;
 //    private String name;
 
@@ -25,6 +27,10 @@ public class User implements UserDetails {
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
+    // tokens issued before this are revoked, set when the user logs out everywhere
+    @JsonIgnore
+    private Date tokensNotBefore;
+
 
 //    public String getName() {
 //        return name;
@@ -97,12 +103,20 @@ public class User implements UserDetails {
         this.password = password;
     }
 
-    public Budget getBudget() {
-        return budget;
+    public Date getTokensNotBefore() {
+        return tokensNotBefore;
+    }
+
+    public void setTokensNotBefore(Date tokensNotBefore) {
+        this.tokensNotBefore = tokensNotBefore;
+    }
+
+    public List<Budget> getBudgets() {
+        return budgets;
     }
 
-    public void setBudget(Budget budget) {
-        this.budget = budget;
+    public void setBudgets(List<Budget> budgets) {
+        this.budgets = budgets;
     }
 
 
@@ -112,13 +126,12 @@ public class User implements UserDetails {
                 "userId='" + userid + '\'' +
                 ", userName='" + userName + '\'' +
                 ", email='" + email + '\'' +
-                ", password='" + password + '\'' +
                 '}' ;
     }
 
     @JsonIgnore
-    @OneToOne(mappedBy = "user")
-    private Budget budget;
+    @OneToMany(mappedBy = "user")
+    private List<Budget> budgets;
 
 }
 
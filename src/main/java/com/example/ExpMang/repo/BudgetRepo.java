@@ -1,12 +1,66 @@
 package com.example.ExpMang.repo;
 
 import com.example.ExpMang.model.Budget;
-import com.example.ExpMang.model.User;
+import com.example.ExpMang.model.BudgetView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 
 @Repository
 public interface BudgetRepo extends JpaRepository<Budget, Long> {
-    Budget findByUser(User user);
+
+    @Query("select b from Budget b where b.user.userid = :userid and b.closedAt is null")
+    Budget findCurrentByUserid(@Param("userid") long userid);
+
+    // read-only so it can be served by a replica; annotated here rather than on the service so cache hits need no transaction
+    @Transactional(readOnly = true)
+    @Query("select new com.example.ExpMang.model.BudgetView(b.budgetid, b.startDate, b.endDate, b.amount, b.amountUsed, b.closedAt, b.archived) " +
+            "from Budget b where b.user.userid = :userid and b.closedAt is null")
+    Optional<BudgetView> findCurrentViewByUserid(@Param("userid") long userid);
+
+    @Query("select new com.example.ExpMang.model.BudgetView(b.budgetid, b.startDate, b.endDate, b.amount, b.amountUsed, b.closedAt, b.archived) " +
+            "from Budget b where b.budgetid = :budgetid and b.user.userid = :userid")
+    Optional<BudgetView> findViewById(@Param("budgetid") long budgetid, @Param("userid") long userid);
+
+    @Query("select new com.example.ExpMang.model.BudgetView(b.budgetid, b.startDate, b.endDate, b.amount, b.amountUsed, b.closedAt, b.archived) " +
+            "from Budget b where b.user.userid = :userid order by b.budgetid desc")
+    List<BudgetView> findViewsByUserid(@Param("userid") long userid);
+
+    @Query("select b.budgetid from Budget b where b.user.userid = :userid and b.archived = true and b.closedAt >= :closedSince " +
+            "order by b.budgetid desc")
+    List<Long> findArchivedIdsClosedSince(@Param("userid") long userid, @Param("closedSince") Date closedSince);
+
+    // the closed periods whose expenses are still in the table and that were open at or after the given time
+    @Query("select b.budgetid from Budget b where b.user.userid = :userid and b.archived = false and b.closedAt >= :closedSince " +
+            "order by b.budgetid desc")
+    List<Long> findUnarchivedIdsClosedSince(@Param("userid") long userid, @Param("closedSince") Date closedSince);
+
+    // archived periods have no expense rows left to rebuild from
+    @Query("select b.budgetid from Budget b where b.archived = false")
+    List<Long> findUnarchivedIds();
+
+    @Query("select b.budgetid from Budget b where b.closedAt < :closedBefore and b.archived = false")
+    List<Long> findArchivableIds(@Param("closedBefore") Date closedBefore);
+
+    @Modifying
+    @Query("update Budget b set b.closedAt = :closedAt where b.user.userid = :userid and b.closedAt is null")
+    int closeCurrent(@Param("userid") long userid, @Param("closedAt") Date closedAt);
+
+    // takes the row lock of a budget whose expenses are still in the table; 0 when it is archived or gone
+    @Modifying
+    @Query("update Budget b set b.amountUsed = b.amountUsed where b.budgetid = :budgetid and b.archived = false")
+    int lockUnarchived(@Param("budgetid") long budgetid);
+
+    // applied in the database so concurrent writers never overwrite each other's totals
+    @Modifying
+    @Query("update Budget b set b.amountUsed = b.amountUsed + :delta where b.budgetid = :budgetid")
+    int addAmountUsed(@Param("budgetid") long budgetid, @Param("delta") int delta);
 }
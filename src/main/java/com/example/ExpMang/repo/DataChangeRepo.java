@@ -0,0 +1,24 @@
+package com.example.ExpMang.repo;
+
+import com.example.ExpMang.model.DataChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface DataChangeRepo extends JpaRepository<DataChange, Long> {
+
+    // not read-only: a replica may not have the newest changes yet
+    @Query("select c from DataChange c where c.changeid >= :fromId order by c.changeid")
+    List<DataChange> findFrom(@Param("fromId") long fromId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from DataChange c where c.changeid < :beforeId")
+    int deleteBefore(@Param("beforeId") long beforeId);
+}
@@ -0,0 +1,26 @@
+package com.example.ExpMang.repo;
+
+import com.example.ExpMang.model.DataVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface DataVersionRepo extends JpaRepository<DataVersion, Long> {
+
+    // read-only so it is served by the same replica as the data it tags
+    @Transactional(readOnly = true)
+    @Query("select v.version from DataVersion v where v.userid = :userid")
+    Optional<Long> findVersion(@Param("userid") long userid);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into data_version (userid, version) values (:userid, 1)
+            on duplicate key update version = version + 1""")
+    int bump(@Param("userid") long userid);
+}
@@ -1,13 +1,46 @@
 package com.example.ExpMang.repo;
 
 import com.example.ExpMang.model.Expense;
-import com.example.ExpMang.model.User;
+import com.example.ExpMang.model.ExpenseView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExpenseRepo extends JpaRepository<Expense, Long> {
-    List<Expense> findByBudgetUser(User user);
+public interface ExpenseRepo extends JpaRepository<Expense, Long>, ExpenseRepoCustom {
+    List<Expense> findByBudgetUserUserid(long userid);
+
+    @Query("select new com.example.ExpMang.model.ExpenseView(e.expenseid, e.amount, e.date, e.description, e.type, e.payment_Method) " +
+            "from Expense e where e.expenseid = :id and e.budget.user.userid = :userid")
+    Optional<ExpenseView> findViewById(@Param("id") long id, @Param("userid") long userid);
+
+    @Query("select e.date, e.type, e.payment_Method, e.amount from Expense e " +
+            "where e.budget.budgetid = :budgetid and e.expenseid >= :minId")
+    Stream<Object[]> streamRollupSource(@Param("budgetid") long budgetid, @Param("minId") long minId);
+
+    // same order as the expense pages, so an archive can be read like one; fetched in chunks from a forward-only cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.ExpMang.model.ExpenseView(e.expenseid, e.amount, e.date, e.description, e.type, e.payment_Method) " +
+            "from Expense e where e.budget.budgetid = :budgetid and e.expenseid >= :minId order by e.date desc, e.expenseid desc")
+    Stream<ExpenseView> streamByBudget(@Param("budgetid") long budgetid, @Param("minId") long minId);
+
+    @Modifying
+    @Query("delete from Expense e where e.budget.budgetid = :budgetid and e.expenseid >= :minId")
+    int deleteByBudget(@Param("budgetid") long budgetid, @Param("minId") long minId);
+
+    // locks only the expense row; the budget total is adjusted separately with a delta update
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Expense e where e.expenseid = :id and e.budget.budgetid = :budgetid")
+    Optional<Expense> findForUpdate(@Param("id") long id, @Param("budgetid") long budgetid);
 }
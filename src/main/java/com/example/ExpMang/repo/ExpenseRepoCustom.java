@@ -0,0 +1,16 @@
+package com.example.ExpMang.repo;
+
+import com.example.ExpMang.model.ExpenseView;
+import com.example.ExpMang.model.ExpenseQuery;
+
+import java.util.List;
+
+public interface ExpenseRepoCustom {
+
+    /**
+     * Keyset page of a budget period's expenses in (date desc, expenseid desc) order, returning up to
+     * {@code query.limit() + 1} rows so the caller can tell whether another page exists. {@code minId}
+     * is a lower bound of the period's expense ids that lets a partitioned table skip older partitions.
+     */
+    List<ExpenseView> findPage(long budgetid, long minId, ExpenseQuery query);
+}
@@ -0,0 +1,70 @@
+package com.example.ExpMang.repo;
+
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.ExpenseCursor;
+import com.example.ExpMang.model.ExpenseQuery;
+import com.example.ExpMang.model.ExpenseView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+class ExpenseRepoImpl implements ExpenseRepoCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ExpenseView> findPage(long budgetid, long minId, ExpenseQuery query) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<ExpenseView> cq = cb.createQuery(ExpenseView.class);
+        Root<Expense> expense = cq.from(Expense.class);
+        Path<Date> date = expense.get("date");
+        Path<Long> id = expense.get("expenseid");
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(expense.get("budget").get("budgetid"), budgetid));
+        where.add(cb.greaterThanOrEqualTo(id, minId));
+        if (query.from() != null) {
+            where.add(cb.greaterThanOrEqualTo(date, query.from()));
+        }
+        if (query.to() != null) {
+            where.add(cb.lessThan(date, query.to()));
+        }
+        if (query.type() != null) {
+            where.add(cb.equal(expense.get("type"), query.type()));
+        }
+        if (query.paymentMethod() != null) {
+            where.add(cb.equal(expense.get("payment_Method"), query.paymentMethod()));
+        }
+        if (query.after() != null) {
+            where.add(after(cb, date, id, query.after()));
+        }
+
+        cq.select(cb.construct(ExpenseView.class, id, expense.get("amount"), date, expense.get("description"),
+                        expense.get("type"), expense.get("payment_Method")))
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(cb.desc(date), cb.desc(id));
+        return em.createQuery(cq)
+                .setMaxResults(query.limit() + 1)
+                .getResultList();
+    }
+
+    // rows strictly after the cursor; undated rows sort last in descending order on MySQL
+    private static Predicate after(CriteriaBuilder cb, Path<Date> date, Path<Long> id, ExpenseCursor cursor) {
+        if (cursor.date() == null) {
+            return cb.and(cb.isNull(date), cb.lessThan(id, cursor.expenseid()));
+        }
+        return cb.or(
+                cb.lessThan(date, cursor.date()),
+                cb.and(cb.equal(date, cursor.date()), cb.lessThan(id, cursor.expenseid())),
+                cb.isNull(date));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.ExpMang.repo;
+
+import com.example.ExpMang.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepo extends JpaRepository<RevokedToken, String> {
+
+    @Query("select t from RevokedToken t where t.revokedAt > :since and t.expiresAt > :now")
+    List<RevokedToken> findRevokedSince(@Param("since") Date since, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Date now);
+}
@@ -0,0 +1,29 @@
+package com.example.ExpMang.repo;
+
+import com.example.ExpMang.model.SpendingRollup;
+import com.example.ExpMang.model.SpendingRollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SpendingRollupRepo extends JpaRepository<SpendingRollup, SpendingRollupKey> {
+
+    List<SpendingRollup> findByIdBudgetid(long budgetid);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into spending_rollup (budgetid, dimension, bucket, total, count)
+            values (:budgetid, :dimension, :bucket, :total, :count)
+            on duplicate key update total = total + :total, count = count + :count""")
+    int addToBucket(@Param("budgetid") long budgetid, @Param("dimension") String dimension, @Param("bucket") String bucket,
+                    @Param("total") long total, @Param("count") long count);
+
+    @Modifying
+    @Query("delete from SpendingRollup r where r.id.budgetid = :budgetid")
+    int deleteByBudget(@Param("budgetid") long budgetid);
+}
@@ -1,13 +1,41 @@
 package com.example.ExpMang.repo;
 
+import com.example.ExpMang.model.AuthUser;
 import com.example.ExpMang.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepo extends JpaRepository<User, Long> {
       Optional<User> findByUserName(String userName);
 
+      boolean existsByUserName(String userName);
+
+      @Query("select new com.example.ExpMang.model.AuthUser(u.userid, u.userName) from User u where u.userName = :userName")
+      Optional<AuthUser> findPrincipalByUserName(@Param("userName") String userName);
+
+      @Transactional
+      @Modifying
+      @Query("update User u set u.tokensNotBefore = :notBefore where u.userName = :userName")
+      int setTokensNotBefore(@Param("userName") String userName, @Param("notBefore") Date notBefore);
+
+      // [userName, tokensNotBefore] of users who logged out everywhere since the given time
+      @Query("select u.userName, u.tokensNotBefore from User u where u.tokensNotBefore > :since")
+      List<Object[]> findTokenWatermarksSince(@Param("since") Date since);
+
+      // serializes changes to which budget period is a user's current one
+      @Lock(LockModeType.PESSIMISTIC_WRITE)
+      @Query("select u.userid from User u where u.userid = :userid")
+      Optional<Long> lockById(@Param("userid") long userid);
+
 }
@@ -0,0 +1,271 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.config.ShardContext;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.ExpenseCursor;
+import com.example.ExpMang.model.ExpenseQuery;
+import com.example.ExpMang.model.ExpenseView;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves the expenses of closed budget periods out of the expense table into one gzip-compressed NDJSON file
+ * per period under {@code expmang.archive.dir}, and reads them back for the expense endpoints. Rows are
+ * written in page order, so a page is read from the start of the file until it is full. Archived periods
+ * are read-only; their spending rollups stay in the database.
+ */
+@Service
+public class BudgetArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetArchiveService.class);
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    private final Path dir;
+
+    private final Duration archiveAfter;
+
+    private final ObjectWriter writer;
+
+    private final ObjectReader reader;
+
+    public BudgetArchiveService(@Value("${expmang.archive.dir:archive}") Path dir,
+                                @Value("${expmang.archive.after:90d}") Duration archiveAfter,
+                                ObjectMapper objectMapper) {
+        this.dir = dir;
+        this.archiveAfter = archiveAfter;
+        this.writer = objectMapper.writerFor(ExpenseView.class);
+        this.reader = objectMapper.readerFor(ExpenseView.class);
+    }
+
+    @Scheduled(cron = "${expmang.archive.cron:-}")
+    public void archiveClosed() {
+        shardResolver.forEachShard(this::archiveClosedOnShard);
+    }
+
+    private void archiveClosedOnShard() {
+        List<Long> budgetIds = budgetRepo.findArchivableIds(Date.from(Instant.now().minus(archiveAfter)));
+        long start = System.nanoTime();
+        int archived = 0;
+        for (Long budgetId : budgetIds) {
+            try {
+                if (archive(budgetId)) {
+                    archived++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not archive budget {}", budgetId, e);
+            }
+        }
+        log.info("Archived {} of {} closed budgets on shard {} in {} ms",
+                archived, budgetIds.size(), ShardContext.current(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the expenses of a closed budget to its archive file and deletes them from the table, holding the
+     * budget row lock throughout. The file is in place before the rows are deleted; if the transaction does
+     * not commit, the budget stays unarchived and the file is replaced by the next attempt.
+     */
+    public boolean archive(long budgetId) {
+        Boolean archived = transactionTemplate.execute(status -> {
+            if (budgetRepo.lockUnarchived(budgetId) == 0) {
+                return false;
+            }
+            Budget budget = budgetRepo.findById(budgetId).orElseThrow();
+            if (budget.getClosedAt() == null) {
+                return false;
+            }
+            long userId = budget.getUser().getId();
+            long minId = IdGenerator.minIdAfter(budgetId);
+            Path file = file(userId, budgetId);
+            int written;
+            try (Stream<ExpenseView> rows = expenseRepo.streamByBudget(budgetId, minId)) {
+                written = write(file, rows);
+            }
+            try {
+                int deleted = expenseRepo.deleteByBudget(budgetId, minId);
+                if (deleted != written) {
+                    throw new IllegalStateException("Archived " + written + " expenses of budget " + budgetId + " but deleted " + deleted);
+                }
+                budget.setArchived(true);
+            } catch (RuntimeException e) {
+                deleteQuietly(file);
+                throw e;
+            }
+            events.publishEvent(new DataChangeEvent(userId, DataChangeEvent.Kind.BUDGET_ARCHIVED, budgetId));
+            log.info("Archived {} expenses of budget {} to {}", written, budgetId, file);
+            return true;
+        });
+        return Boolean.TRUE.equals(archived);
+    }
+
+    /**
+     * Up to {@code query.limit() + 1} expenses of an archived budget, like {@code ExpenseRepo.findPage}.
+     */
+    public List<ExpenseView> findPage(long userId, long budgetId, ExpenseQuery query) {
+        Predicate<ExpenseView> matches = matcher(query);
+        List<ExpenseView> rows = new ArrayList<>();
+        try (Stream<ExpenseView> archived = read(file(userId, budgetId))) {
+            archived.filter(matches).limit(query.limit() + 1).forEach(rows::add);
+        }
+        return rows;
+    }
+
+    /**
+     * Every expense of an archived budget in page order, read lazily from its file. Must be closed.
+     */
+    public Stream<ExpenseView> stream(long userId, long budgetId) {
+        return read(file(userId, budgetId));
+    }
+
+    /**
+     * Looks an expense up in the user's archives. Only the periods that were open when the id was assigned
+     * can hold it, so at most the file of that period, or two around a period boundary, is read.
+     */
+    public Optional<ExpenseView> find(long userId, long expenseId) {
+        Date closedSince = new Date(IdGenerator.earliestTimeOf(expenseId));
+        for (Long budgetId : budgetRepo.findArchivedIdsClosedSince(userId, closedSince)) {
+            if (expenseId < IdGenerator.minIdAfter(budgetId)) {
+                continue;
+            }
+            try (Stream<ExpenseView> archived = read(file(userId, budgetId))) {
+                Optional<ExpenseView> found = archived.filter(e -> e.expenseid() == expenseId).findFirst();
+                if (found.isPresent()) {
+                    return found;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Path file(long userId, long budgetId) {
+        return dir.resolve(Long.toString(userId)).resolve("budget-" + budgetId + ".ndjson.gz");
+    }
+
+    private int write(Path file, Stream<ExpenseView> rows) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                for (ExpenseView row : (Iterable<ExpenseView>) rows::iterator) {
+                    out.write(writer.writeValueAsString(row));
+                    out.write('\n');
+                    count++;
+                }
+            }
+            // on disk before the rows it replaces are deleted
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Stream<ExpenseView> read(Path file) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8));
+            return in.lines().map(line -> {
+                try {
+                    return reader.<ExpenseView>readValue(line);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).onClose(() -> {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the filters and cursor of ExpenseRepoImpl.findPage, where comparisons with a missing date never match
+    private static Predicate<ExpenseView> matcher(ExpenseQuery query) {
+        Predicate<ExpenseView> matches = e -> true;
+        if (query.from() != null) {
+            matches = matches.and(e -> e.date() != null && !e.date().before(query.from()));
+        }
+        if (query.to() != null) {
+            matches = matches.and(e -> e.date() != null && e.date().before(query.to()));
+        }
+        if (query.type() != null) {
+            matches = matches.and(e -> query.type().equals(e.type()));
+        }
+        if (query.paymentMethod() != null) {
+            matches = matches.and(e -> query.paymentMethod().equals(e.payment_Method()));
+        }
+        ExpenseCursor after = query.after();
+        if (after != null) {
+            matches = matches.and(after.date() == null
+                    ? e -> e.date() == null && e.expenseid() < after.expenseid()
+                    : e -> e.date() == null || e.date().before(after.date())
+                            || (e.date().equals(after.date()) && e.expenseid() < after.expenseid()));
+        }
+        return matches;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
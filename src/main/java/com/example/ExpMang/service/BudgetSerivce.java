@@ -13,12 +13,9 @@ public class BudgetSerivce {
     @Autowired
     private BudgetRepo repo;
 
-    @Autowired
-    private IdGenerator generate;
-
     public Budget setUserBudget(Budget budget) {
 
-        budget.setBudgetId(Long.parseLong(generate.generateCustomNanoId()));
+        // the id is assigned by IdGenerator when the budget is persisted
         budget.setUser(budget.getUser());
         budget.setAmount(budget.getAmount());
         budget.setStartDate(budget.getStartDate());
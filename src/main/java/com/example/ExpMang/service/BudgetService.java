@@ -1,11 +1,30 @@
 package com.example.ExpMang.service;
 
+import com.example.ExpMang.model.AuthUser;
 import com.example.ExpMang.model.Budget;
-import com.example.ExpMang.model.User;
+import com.example.ExpMang.model.BudgetView;
 import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.SpendingRollupRepo;
 import com.example.ExpMang.repo.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Service
 public class BudgetService {
@@ -16,32 +35,121 @@ public class BudgetService {
     @Autowired
     private UserRepo userRepo;
 
-    public Budget createBudget(Budget budget, User user) {
-        budget.setUser(user);
-        return budgetRepo.save(budget);
+    @Autowired
+    private SpendingRollupRepo rollupRepo;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    // per-user budget, including users without one; invalidated after every committed budget or expense write
+    private final Cache<Long, Optional<BudgetView>> budgets;
+
+    // per-user budget id for the expense write path, which only changes when a budget is created or deleted
+    private final Cache<Long, Optional<Long>> budgetIds;
+
+    // bumped before every invalidation, so a load that raced a committed write is never stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public BudgetService(@Value("${expmang.budget.cache.maximum-size:10000}") long cacheSize,
+                         @Value("${expmang.budget.cache.ttl:5m}") Duration ttl,
+                         MeterRegistry registry) {
+        budgets = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        budgetIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, budgets, "budgets");
+        CaffeineCacheMetrics.monitor(registry, budgetIds, "budget.ids");
+    }
+
+    // starts a new period; the current one, if any, is closed and kept as history
+    @Transactional
+    public Budget createBudget(Budget budget, AuthUser user) {
+        userRepo.lockById(user.id());
+        budgetRepo.closeCurrent(user.id(), new Date());
+        budget.setBudgetId(null);
+        budget.setClosedAt(null);
+        budget.setArchived(false);
+        budget.setUser(userRepo.getReferenceById(user.id()));
+        Budget saved = budgetRepo.save(budget);
+        events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.BUDGET_CREATED, saved.getBudgetId()));
+        return saved;
+    }
+
+    public BudgetView getBudget(AuthUser user) {
+        return findBudget(user).orElse(null);
     }
 
-    public Budget getBudget(User user) {
-        return budgetRepo.findByUser(user);
+    public Optional<BudgetView> findBudget(AuthUser user) {
+        return load(budgets, user.id(), budgetRepo::findCurrentViewByUserid);
     }
 
-    public Budget updateBudget(Budget budget, User user) {
-        Budget existingBudget = budgetRepo.findByUser(user);
+    // newest first, including closed and archived periods
+    @Transactional(readOnly = true)
+    public List<BudgetView> getPeriods(AuthUser user) {
+        return budgetRepo.findViewsByUserid(user.id());
+    }
+
+    public Optional<BudgetView> findPeriod(AuthUser user, long budgetId) {
+        return budgetRepo.findViewById(budgetId, user.id());
+    }
+
+    public Optional<Long> findBudgetId(AuthUser user) {
+        return load(budgetIds, user.id(), id -> findBudget(user).map(BudgetView::budgetid));
+    }
+
+    // Queries outside the cache's compute lock: a monitor held across JDBC would pin a virtual thread's
+    // carrier while it waits for a pooled connection.
+    private <V> V load(Cache<Long, V> cache, long userId, Function<Long, V> loader) {
+        V cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = generation.get();
+        V loaded = loader.apply(userId);
+        cache.asMap().compute(userId, (id, current) -> generation.get() == seen ? loaded : current);
+        return loaded;
+    }
+
+    @Transactional
+    public Budget updateBudget(Budget budget, AuthUser user) {
+        Budget existingBudget = budgetRepo.findCurrentByUserid(user.id());
         if (existingBudget != null) {
             existingBudget.setAmount(budget.getAmount());
             existingBudget.setStartDate(budget.getStartDate());
             existingBudget.setEndDate(budget.getEndDate());
-            return budgetRepo.save(existingBudget);
+            Budget saved = budgetRepo.save(existingBudget);
+            events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.BUDGET_UPDATED, saved.getBudgetId()));
+            return saved;
         }
         return null;
     }
 
-    public void deleteBudget(User user) {
-        Budget budget = budgetRepo.findByUser(user);
+    @Transactional
+    public void deleteBudget(AuthUser user) {
+        Budget budget = budgetRepo.findCurrentByUserid(user.id());
         if (budget != null) {
-            user.setBudget(null);
-            userRepo.save(user);
+            rollupRepo.deleteByBudget(budget.getBudgetId());
             budgetRepo.delete(budget);
+            events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.BUDGET_DELETED, budget.getBudgetId()));
+        }
+    }
+
+    // runs after commit, so a concurrent load either sees the new row or is discarded by this invalidation;
+    // ordered after the read-your-writes pin, so a reload cannot come from a lagging replica, and before the
+    // data version, which is only bumped once the cache no longer holds the old view
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChange(DataChangeEvent event) {
+        generation.incrementAndGet();
+        budgets.invalidate(event.userId());
+        if (event.kind() == DataChangeEvent.Kind.BUDGET_CREATED || event.kind() == DataChangeEvent.Kind.BUDGET_DELETED) {
+            budgetIds.invalidate(event.userId());
         }
     }
 }
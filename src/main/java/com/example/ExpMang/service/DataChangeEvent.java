@@ -0,0 +1,20 @@
+package com.example.ExpMang.service;
+
+/**
+ * Published by the services whenever a user's budget or expenses change. Listeners that keep
+ * derived state should use {@code @TransactionalEventListener} so they only react after commit.
+ */
+public record DataChangeEvent(long userId, Kind kind, Long entityId) {
+
+    public enum Kind {
+        BUDGET_CREATED,
+        BUDGET_UPDATED,
+        BUDGET_DELETED,
+        BUDGET_ARCHIVED,
+        EXPENSE_ADDED,
+        EXPENSE_UPDATED,
+        EXPENSE_DELETED,
+        EXPENSES_IMPORTED,
+        EXPENSES_INGESTED
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.model.DataChange;
+import com.example.ExpMang.repo.DataChangeRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Passes budget and expense changes on to the other nodes. Every change is written to the {@code data_change}
+ * table of the user's shard in the transaction that makes it, and every node polls all shards for the changes
+ * the others made. It republishes them as {@link DataChangeEvent}s outside a transaction, which the listeners
+ * with {@code fallbackExecution} handle like a local commit: the budget cache drops the user's entry, their
+ * reads are pinned to the primary and their event streams on this node are sent the change. Another node's
+ * change arrives within {@code poll-interval}; rows are deleted after {@code retention}. Off unless
+ * {@code expmang.events.change-log.enabled}, since a single node has no one to pass its changes on to.
+ */
+@Service
+public class DataChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(DataChangeLog.class);
+
+    @Autowired
+    private DataChangeRepo dataChangeRepo;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    private final boolean enabled;
+
+    // tells this process's changes from those of other processes, whatever node ids they were configured with
+    private final long origin = new SecureRandom().nextLong();
+
+    private final long overlapMs;
+
+    private final long retentionMs;
+
+    // not a monitor: polling queries every shard, which would pin a virtual thread's carrier
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    // changes passed on since the start of the overlap, so one read by two polls goes out once
+    private final NavigableSet<Long> seen = new TreeSet<>();
+
+    private long lastPoll = System.currentTimeMillis();
+
+    public DataChangeLog(@Value("${expmang.events.change-log.enabled:false}") boolean enabled,
+                         @Value("${expmang.events.change-log.overlap:5s}") Duration overlap,
+                         @Value("${expmang.events.change-log.retention:1m}") Duration retention) {
+        if (retention.compareTo(overlap) <= 0) {
+            throw new IllegalArgumentException("expmang.events.change-log.retention must be longer than the overlap");
+        }
+        this.enabled = enabled;
+        this.overlapMs = overlap.toMillis();
+        this.retentionMs = retention.toMillis();
+    }
+
+    // an insert of a new row, which waits on no lock the write holds
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onDataChange(DataChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        DataChange change = new DataChange();
+        change.setUserid(event.userId());
+        change.setKind(event.kind());
+        change.setEntityid(event.entityId());
+        change.setOrigin(origin);
+        dataChangeRepo.save(change);
+    }
+
+    /**
+     * Republishes the changes other nodes committed since the last poll. Reads back {@code overlap} further, for
+     * changes that committed after a later id or come from a node whose clock is behind.
+     */
+    @Scheduled(fixedDelayString = "${expmang.events.change-log.poll-interval:1s}",
+            initialDelayString = "${expmang.events.change-log.poll-interval:1s}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        pollLock.lock();
+        try {
+            pollLocked();
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    private void pollLocked() {
+        long now = System.currentTimeMillis();
+        long fromId = IdGenerator.firstIdAt(lastPoll - overlapMs);
+        List<DataChange> changes = new ArrayList<>();
+        shardResolver.forEachShard(() -> changes.addAll(dataChangeRepo.findFrom(fromId)));
+        seen.headSet(fromId).clear();
+        for (DataChange change : changes) {
+            // this process's own changes were published when they committed
+            if (change.getOrigin() == origin || !seen.add(change.getChangeid())) {
+                continue;
+            }
+            try {
+                events.publishEvent(new DataChangeEvent(change.getUserid(), change.getKind(), change.getEntityid()));
+            } catch (RuntimeException e) {
+                log.warn("Could not pass on {} of user {}", change.getKind(), change.getUserid(), e);
+            }
+        }
+        lastPoll = now;
+    }
+
+    @Scheduled(fixedDelayString = "${expmang.events.change-log.retention:1m}",
+            initialDelayString = "${expmang.events.change-log.retention:1m}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        long beforeId = IdGenerator.firstIdAt(System.currentTimeMillis() - retentionMs);
+        shardResolver.forEachShard(() -> dataChangeRepo.deleteBefore(beforeId));
+    }
+}
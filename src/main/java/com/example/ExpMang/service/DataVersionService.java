@@ -0,0 +1,94 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.repo.DataVersionRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns the per-user data version into a strong ETag for the read endpoints. The version is a row in the
+ * database, bumped in the same transaction as every budget or expense write, so every node hands out the
+ * same tag for the same data and a tag survives restarts. Versions are cached on each node, so a 304 needs
+ * no query; the entry is dropped after a write committed here or passed on by {@link DataChangeLog}, and
+ * without the change log another node's writes only show once it expires.
+ */
+@Service
+public class DataVersionService {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    @Autowired
+    private DataVersionRepo dataVersionRepo;
+
+    private final Cache<Long, Long> versions;
+
+    // bumped before every invalidation, so a load that raced a committed write is never stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public DataVersionService(@Value("${expmang.data-version.cache.maximum-size:100000}") long cacheSize,
+                              @Value("${expmang.data-version.cache.ttl:5m}") Duration ttl,
+                              MeterRegistry registry) {
+        versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, versions, "data.versions");
+    }
+
+    // queried outside the cache's compute lock, like BudgetService.load
+    public long version(long userId) {
+        Long cached = versions.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = generation.get();
+        long loaded = dataVersionRepo.findVersion(userId).orElse(0L);
+        versions.asMap().compute(userId, (id, current) -> generation.get() == seen ? Long.valueOf(loaded) : current);
+        return loaded;
+    }
+
+    public String etag(long userId) {
+        return "\"" + Long.toString(userId, 36) + "-" + Long.toString(version(userId), 36) + "\"";
+    }
+
+    /**
+     * Tags the response with the user's current version and answers 304 when the client already has it.
+     * Must be called before the data is read, so a write racing the read only ever makes the tag older.
+     */
+    public boolean checkNotModified(ServletWebRequest request, long userId) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        }
+        return request.checkNotModified(etag(userId));
+    }
+
+    // just before commit, so the version row is always the last one a write locks and cannot deadlock it
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onDataChange(DataChangeEvent event) {
+        dataVersionRepo.bump(event.userId());
+    }
+
+    // after the read-your-writes pin, so the reload reads the bumped row from the primary
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommittedChange(DataChangeEvent event) {
+        generation.incrementAndGet();
+        versions.invalidate(event.userId());
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.config.ShardContext;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.BudgetView;
+import com.example.ExpMang.model.ExpenseView;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes a user's budget and expense changes to their open dashboards as Server-Sent Events, once committed.
+ * <p>
+ * An idle stream holds no thread: it is an async request parked in the container, an entry here and an empty
+ * queue. A change is loaded and serialized once per user, however many streams they have open, and offered to
+ * the queue of each; a small pool of sender threads drains the queues. A stream whose queue fills up, because
+ * its client reads slower than changes arrive, is closed rather than buffered, and its client reconnects and
+ * reloads. Writes block, so a client that stops reading holds a sender thread until the write times out after
+ * {@code server.tomcat.connection-timeout}; the connection is then dropped and a stream evicted meanwhile is
+ * completed. A comment line every {@code heartbeat-interval} keeps proxies from closing idle streams and finds
+ * the dead ones. Streams live in this node's memory: changes committed on this node go out on commit, those
+ * committed on other nodes once {@link DataChangeLog}, when enabled, polls them within its {@code poll-interval}.
+ */
+@Service
+public class EventStreamService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStreamService.class);
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // streams by user id
+    private final ConcurrentHashMap<Long, Topic> topics = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // Platform threads: the emitter sends while holding its monitor, which would pin a virtual thread's
+    // carrier for as long as a write to a slow client blocks.
+    private final ThreadPoolExecutor senders;
+
+    private final int maxConnections;
+
+    private final int maxPerUser;
+
+    private final int queueCapacity;
+
+    private final long timeoutMs;
+
+    private final int[] alertThresholds;
+
+    private final Counter evicted;
+
+    private final Counter rejected;
+
+    public EventStreamService(@Value("${expmang.events.max-connections:10000}") int maxConnections,
+                              @Value("${expmang.events.max-per-user:5}") int maxPerUser,
+                              @Value("${expmang.events.queue-capacity:64}") int queueCapacity,
+                              @Value("${expmang.events.timeout:30m}") Duration timeout,
+                              @Value("${expmang.events.sender-threads:8}") int senderThreads,
+                              @Value("${expmang.events.alert-thresholds:80,100}") int[] alertThresholds,
+                              MeterRegistry registry) {
+        this.maxConnections = maxConnections;
+        this.maxPerUser = maxPerUser;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeout.toMillis();
+        this.alertThresholds = alertThresholds.clone();
+        AtomicInteger count = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "event-sender-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        ExecutorServiceMetrics.monitor(registry, senders, "events.senders");
+        Gauge.builder("events.connections", connections, AtomicInteger::get)
+                .description("Open event streams")
+                .register(registry);
+        this.evicted = Counter.builder("events.evicted")
+                .description("Event streams closed because their client fell behind")
+                .register(registry);
+        this.rejected = Counter.builder("events.rejected")
+                .description("Event streams refused at the connection limit")
+                .register(registry);
+    }
+
+    /**
+     * Opens a stream for the user, starting with their current budget. A stream beyond {@code max-per-user} closes
+     * their oldest one; past {@code max-connections} on this node the request gets 503.
+     */
+    public SseEmitter subscribe(AuthUser user) {
+        // a user at their limit trades their oldest stream for the new one, which needs no room under the node limit
+        Topic existing = topics.get(user.id());
+        if (existing != null && existing.subscribers.size() >= maxPerUser) {
+            for (Subscriber oldest : existing.subscribers) {
+                evict(oldest);
+                break;
+            }
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open event streams");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(user.id(), emitter);
+        // the shard the request is bound to, for loading what later events carry
+        Integer shard = ShardContext.current();
+        Topic topic = topics.compute(user.id(), (id, current) -> {
+            Topic updated = current != null ? current : new Topic(user, shard != null ? shard : 0);
+            updated.subscribers.add(subscriber);
+            return updated;
+        });
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        emitter.onTimeout(() -> {
+            close(subscriber);
+            emitter.complete();
+        });
+
+        BudgetView budget = budgetService.findBudget(user).orElse(null);
+        topic.lock.lock();
+        try {
+            if (!topic.loaded) {
+                topic.budget = budget;
+                topic.loaded = true;
+            }
+        } finally {
+            topic.lock.unlock();
+        }
+        offer(subscriber, event("budget", budget));
+        return emitter;
+    }
+
+    // after the budget cache has dropped the old view, so the budget loaded for the streams is the committed one
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChange(DataChangeEvent event) {
+        Topic topic = topics.get(event.userId());
+        if (topic == null) {
+            return;
+        }
+        try {
+            senders.execute(() -> publish(topic, event));
+        } catch (RejectedExecutionException e) {
+            log.debug("Not pushing {} for user {}, shutting down", event.kind(), event.userId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expmang.events.heartbeat-interval:15s}", initialDelayString = "${expmang.events.heartbeat-interval:15s}")
+    public void heartbeat() {
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                offer(subscriber, HEARTBEAT);
+            }
+        }
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    // one change at a time per user, so alerts compare against the budget the previous change left
+    private void publish(Topic topic, DataChangeEvent event) {
+        topic.lock.lock();
+        try {
+            // on the primary, which replicas may not have caught up with yet
+            List<Set<DataWithMediaType>> payloads = ShardContext.call(topic.shard,
+                    () -> transactionTemplate.execute(status -> payloads(topic, event)));
+            for (Subscriber subscriber : topic.subscribers) {
+                for (Set<DataWithMediaType> payload : payloads) {
+                    offer(subscriber, payload);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not push {} to the event streams of user {}", event.kind(), event.userId(), e);
+        } finally {
+            topic.lock.unlock();
+        }
+    }
+
+    private List<Set<DataWithMediaType>> payloads(Topic topic, DataChangeEvent event) {
+        List<Set<DataWithMediaType>> payloads = new ArrayList<>(3);
+        switch (event.kind()) {
+            case EXPENSE_ADDED, EXPENSE_UPDATED -> expenseRepo.findViewById(event.entityId(), event.userId())
+                    .ifPresent(expense -> payloads.add(event("expense", new ExpenseChange(
+                            event.kind() == DataChangeEvent.Kind.EXPENSE_ADDED ? "added" : "updated", expense.expenseid(), expense))));
+            case EXPENSE_DELETED -> payloads.add(event("expense", new ExpenseChange("deleted", event.entityId(), null)));
+            // too many to send one by one; the client reloads the list
+            case EXPENSES_IMPORTED, EXPENSES_INGESTED -> payloads.add(event("expense", new ExpenseChange("reload", null, null)));
+            default -> {
+            }
+        }
+
+        BudgetView budget = budgetService.findBudget(topic.user).orElse(null);
+        if (!Objects.equals(budget, topic.budget)) {
+            payloads.add(event("budget", budget));
+            for (int threshold : crossedThresholds(topic.budget, budget)) {
+                payloads.add(event("alert", new BudgetAlert(budget.budgetid(), threshold, budget.amount(), budget.amountUsed())));
+            }
+            topic.budget = budget;
+        }
+        return payloads;
+    }
+
+    // thresholds, in percent of the budget, that the amount used reached with this change
+    private List<Integer> crossedThresholds(BudgetView before, BudgetView after) {
+        if (after == null || after.amount() <= 0) {
+            return List.of();
+        }
+        long usedBefore = before != null && Objects.equals(before.budgetid(), after.budgetid()) ? before.amountUsed() : 0;
+        List<Integer> crossed = new ArrayList<>(1);
+        for (int threshold : alertThresholds) {
+            long limit = (long) after.amount() * threshold;
+            if (usedBefore * 100 < limit && (long) after.amountUsed() * 100 >= limit) {
+                crossed.add(threshold);
+            }
+        }
+        return crossed;
+    }
+
+    // serialized once, whatever the number of streams it goes to
+    private Set<DataWithMediaType> event(String name, Object data) {
+        try {
+            return SseEmitter.event()
+                    .name(name)
+                    .data(objectMapper.writeValueAsString(data), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the " + name + " event", e);
+        }
+    }
+
+    private void offer(Subscriber subscriber, Set<DataWithMediaType> payload) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (subscriber.queued.incrementAndGet() > queueCapacity) {
+            evicted.increment();
+            log.debug("Closing an event stream of user {}, its client fell {} events behind", subscriber.userId, queueCapacity);
+            evict(subscriber);
+            return;
+        }
+        subscriber.queue.add(payload);
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    // at most one drain per stream at a time, so its events go out in order
+    private void drain(Subscriber subscriber) {
+        do {
+            Set<DataWithMediaType> payload;
+            while (!subscriber.closed.get() && (payload = subscriber.queue.poll()) != null) {
+                subscriber.queued.decrementAndGet();
+                try {
+                    subscriber.emitter.send(payload);
+                } catch (IOException | IllegalStateException e) {
+                    // the client has gone away or the stream was completed meanwhile
+                    close(subscriber);
+                }
+            }
+            if (subscriber.closed.get()) {
+                subscriber.queue.clear();
+                // completed here rather than by whoever evicted the stream, who would wait for a blocked send
+                if (subscriber.completePending.compareAndSet(true, false)) {
+                    subscriber.emitter.complete();
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.queue.isEmpty() && !subscriber.closed.get() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (close(subscriber)) {
+            subscriber.completePending.set(true);
+            schedule(subscriber);
+        }
+    }
+
+    private boolean close(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        connections.decrementAndGet();
+        topics.computeIfPresent(subscriber.userId, (id, topic) -> {
+            topic.subscribers.remove(subscriber);
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+        return true;
+    }
+
+    // clients reconnect, to another node during a rolling deploy
+    @Override
+    public void destroy() {
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                if (close(subscriber)) {
+                    subscriber.emitter.complete();
+                }
+            }
+        }
+        senders.shutdown();
+    }
+
+    /**
+     * The {@code expense} event: one expense added, updated or deleted, or {@code reload} after a bulk write.
+     */
+    public record ExpenseChange(String type, Long expenseid, ExpenseView expense) {
+    }
+
+    /**
+     * The {@code alert} event, sent when the amount used reaches a threshold, in percent, of the budget.
+     */
+    public record BudgetAlert(Long budgetid, int threshold, int amount, int amountUsed) {
+    }
+
+    private static final class Topic {
+
+        final AuthUser user;
+
+        final int shard;
+
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        // not a monitor: publishing queries the database, which would pin a virtual thread's carrier
+        final ReentrantLock lock = new ReentrantLock();
+
+        // the budget the streams were last told about
+        BudgetView budget;
+
+        boolean loaded;
+
+        Topic(AuthUser user, int shard) {
+            this.user = user;
+            this.shard = shard;
+        }
+    }
+
+    private static final class Subscriber {
+
+        final long userId;
+
+        final SseEmitter emitter;
+
+        final ConcurrentLinkedQueue<Set<DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+
+        final AtomicInteger queued = new AtomicInteger();
+
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        final AtomicBoolean completePending = new AtomicBoolean();
+
+        Subscriber(long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.BudgetView;
+import com.example.ExpMang.model.ExpenseView;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Writes every expense of a user, all budget periods newest first, straight from a forward-only cursor to an
+ * output stream. Rows are read as {@link ExpenseView} projections in fetch-size chunks and written one at a
+ * time, so neither the persistence context nor the buffers grow with the history. The formats are the ones
+ * {@link ExpenseImportService} reads.
+ */
+@Service
+public class ExpenseExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseExportService.class);
+
+    static final String CSV_HEADER = "expenseid,amount,date,description,type,payment_Method";
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private BudgetArchiveService archiveService;
+
+    private final ObjectWriter writer;
+
+    public ExpenseExportService(ObjectMapper objectMapper) {
+        // the writer must not close or flush the stream after every row
+        this.writer = objectMapper.writerFor(ExpenseView.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    }
+
+    /**
+     * Writes the export and returns the number of expenses in it. The stream is flushed but not closed.
+     * Read-only, so it is served by a replica when there is one.
+     */
+    @Transactional(readOnly = true)
+    public long export(AuthUser user, ExpenseImportService.Format format, OutputStream body) throws IOException {
+        long start = System.nanoTime();
+        Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == ExpenseImportService.Format.CSV) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+        long rows = 0;
+        for (BudgetView period : budgetRepo.findViewsByUserid(user.id())) {
+            try (Stream<ExpenseView> expenses = period.archived()
+                    ? archiveService.stream(user.id(), period.budgetid())
+                    : expenseRepo.streamByBudget(period.budgetid(), IdGenerator.minIdAfter(period.budgetid()))) {
+                for (ExpenseView expense : (Iterable<ExpenseView>) expenses::iterator) {
+                    if (format == ExpenseImportService.Format.CSV) {
+                        writeCsv(out, expense);
+                    } else {
+                        writer.writeValue(out, expense);
+                    }
+                    out.write('\n');
+                    rows++;
+                }
+            }
+        }
+        out.flush();
+        log.info("Exported {} expenses of user {} as {} in {} ms", rows, user.id(), format, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private static void writeCsv(Writer out, ExpenseView expense) throws IOException {
+        out.write(Long.toString(expense.expenseid()));
+        out.write(',');
+        out.write(Integer.toString(expense.amount()));
+        out.write(',');
+        if (expense.date() != null) {
+            out.write(expense.date().toInstant().toString());
+        }
+        out.write(',');
+        writeCsvField(out, expense.description());
+        out.write(',');
+        writeCsvField(out, expense.type());
+        out.write(',');
+        writeCsvField(out, expense.payment_Method());
+    }
+
+    // quoted only when needed, with "" for a quote as ExpenseImportService.splitCsv expects; a line break stays
+    // inside its quotes, which spreadsheet tools read but the line-based import rejects
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
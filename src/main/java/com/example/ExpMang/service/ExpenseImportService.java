@@ -0,0 +1,207 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.ImportResult;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams expenses from a CSV or NDJSON upload straight into JDBC batches. The upload is read
+ * line by line and never buffered as a whole; the budget total and rollups are adjusted once at the end.
+ */
+@Service
+public class ExpenseImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    /**
+     * Imports every parseable row in one transaction and skips the rest, reporting them by line number.
+     * Returns null when the user has no budget to attach the expenses to.
+     */
+    @Transactional
+    public ImportResult importExpenses(InputStream body, Format format, AuthUser user) throws IOException {
+        Long budgetId = budgetService.findBudgetId(user).orElse(null);
+        if (budgetId == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String[] header = format == Format.CSV ? readHeader(reader) : null;
+        long lineNumber = format == Format.CSV ? 1 : 0;
+
+        List<ImportResult.RowError> errors = new ArrayList<>();
+        int imported = 0;
+        int rejected = 0;
+        int pending = 0;
+        long total = 0;
+        RollupService.Delta rollupDelta = new RollupService.Delta();
+        // amountUsed is an int column, so rows that would take it out of range are rejected before they are written
+        long amountUsed = em.find(Budget.class, budgetId).getAmountUsed();
+        Budget budget = em.getReference(Budget.class, budgetId);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Expense expense;
+            try {
+                expense = format == Format.CSV ? parseCsv(header, line) : objectMapper.readValue(line, Expense.class);
+            } catch (JsonProcessingException e) {
+                rejected++;
+                report(errors, lineNumber, e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                report(errors, lineNumber, e.getMessage());
+                continue;
+            }
+            long nextTotal = total + expense.getAmount();
+            if (!fitsInt(nextTotal) || !fitsInt(amountUsed + nextTotal)) {
+                rejected++;
+                report(errors, lineNumber, "Amount " + expense.getAmount() + " would take the budget's amount used out of range");
+                continue;
+            }
+
+            expense.setExpenseId(null);
+            expense.setBudget(budget);
+            em.persist(expense);
+            total = nextTotal;
+            rollupDelta.add(expense, 1);
+            imported++;
+
+            if (++pending == batchSize) {
+                em.flush();
+                em.clear();
+                budget = em.getReference(Budget.class, budgetId);
+                pending = 0;
+            }
+        }
+        em.flush();
+        em.clear();
+
+        budgetRepo.addAmountUsed(budgetId, (int) total);
+        rollupService.apply(budgetId, rollupDelta);
+        if (imported > 0) {
+            events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.EXPENSES_IMPORTED, budgetId));
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = imported / Math.max(elapsedNanos / 1_000_000_000.0, 1e-9);
+        log.info("Imported {} expenses into budget {}, {} rows rejected, in {} ms", imported, budgetId, rejected, elapsedNanos / 1_000_000);
+        return new ImportResult(imported, rejected, errors, elapsedNanos / 1_000_000, rowsPerSecond);
+    }
+
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    private static void report(List<ImportResult.RowError> errors, long lineNumber, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportResult.RowError(lineNumber, message));
+        }
+    }
+
+    private static String[] readHeader(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return new String[0];
+        }
+        List<String> columns = splitCsv(line);
+        return columns.stream().map(String::trim).toArray(String[]::new);
+    }
+
+    // CSV columns are named like the JSON properties of Expense, so both formats share one mapping
+    private Expense parseCsv(String[] header, String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("Expected " + header.length + " columns but found " + values.size());
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            String value = values.get(i);
+            row.put(header[i], value.isEmpty() ? null : value);
+        }
+        return objectMapper.convertValue(row, Expense.class);
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
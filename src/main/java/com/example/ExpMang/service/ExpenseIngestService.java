@@ -0,0 +1,316 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.config.ShardContext;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.IngestStatus;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind ingestion of new expenses. An accepted expense gets its id immediately and waits in a bounded
+ * in-memory queue; a single committer thread drains the queue and writes everything it collected, across
+ * users, in one transaction: batched inserts, one budget delta and one rollup delta per budget.
+ * <p>
+ * Durability: accepting an expense only means it is queued. It becomes durable when its status turns
+ * {@code COMMITTED}. A graceful shutdown stops accepting and commits everything still queued, but expenses
+ * accepted and not yet committed are lost if the process dies. Clients that cannot afford that loss should
+ * poll the status, or use the synchronous path.
+ */
+@Service
+public class ExpenseIngestService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseIngestService.class);
+
+    // the shard of the accepting request, which the committer writes to
+    private record Pending(Expense expense, long budgetId, long userId, Integer shard) {
+    }
+
+    private record Tracked(long userId, IngestStatus.State state) {
+    }
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long maxDelayNanos;
+
+    private final Duration shutdownTimeout;
+
+    private final long retryAfterSeconds;
+
+    private final BlockingQueue<Pending> queue;
+
+    // outcome of recently accepted expenses, for clients confirming their writes
+    private final Cache<Long, Tracked> statuses;
+
+    private final Counter rejected;
+
+    private final Timer commitTimer;
+
+    private volatile boolean accepting;
+
+    private volatile boolean running;
+
+    private Thread committer;
+
+    public ExpenseIngestService(@Value("${expmang.ingest.write-behind.enabled:false}") boolean enabled,
+                                @Value("${expmang.ingest.queue-capacity:10000}") int queueCapacity,
+                                @Value("${expmang.ingest.batch-size:500}") int batchSize,
+                                @Value("${expmang.ingest.max-delay:10ms}") Duration maxDelay,
+                                @Value("${expmang.ingest.status-ttl:10m}") Duration statusTtl,
+                                @Value("${expmang.ingest.shutdown-timeout:30s}") Duration shutdownTimeout,
+                                @Value("${expmang.ingest.retry-after:1s}") Duration retryAfter,
+                                MeterRegistry registry) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(Math.max(queueCapacity * 10L, 10_000))
+                .expireAfterWrite(statusTtl)
+                .build();
+
+        Gauge.builder("expense.ingest.queue", queue, BlockingQueue::size)
+                .description("Expenses accepted and not yet committed")
+                .register(registry);
+        this.rejected = Counter.builder("expense.ingest.rejected").register(registry);
+        this.commitTimer = Timer.builder("expense.ingest.commit")
+                .description("Group commits of queued expenses")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the expense for the next group commit and returns its reserved id as {@code PENDING}.
+     * Returns null when the user has no budget, and throws {@link IngestQueueFullException} when the queue is full.
+     */
+    public IngestStatus accept(Expense expense, AuthUser user) {
+        Long budgetId = budgetService.findBudgetId(user).orElse(null);
+        if (budgetId == null) {
+            return null;
+        }
+        long id = idGenerator.nextId();
+        expense.setExpenseId(id);
+        expense.setBudget(null);
+        statuses.put(id, new Tracked(user.id(), IngestStatus.State.PENDING));
+        if (!accepting || !queue.offer(new Pending(expense, budgetId, user.id(), ShardContext.current()))) {
+            statuses.invalidate(id);
+            rejected.increment();
+            throw new IngestQueueFullException(retryAfterSeconds);
+        }
+        return new IngestStatus(id, IngestStatus.State.PENDING);
+    }
+
+    /**
+     * Status of an expense accepted by this node, or {@code COMMITTED} for any stored expense of the user.
+     * Returns null when the user has no such expense.
+     */
+    public IngestStatus status(long id, AuthUser user) {
+        Tracked tracked = statuses.getIfPresent(id);
+        if (tracked != null && tracked.userId() == user.id()) {
+            return new IngestStatus(id, tracked.state());
+        }
+        return expenseRepo.findViewById(id, user.id()).isPresent()
+                ? new IngestStatus(id, IngestStatus.State.COMMITTED)
+                : null;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // linger briefly so a burst from many requests shares one transaction
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown timed out; whatever is still queued is lost
+                Thread.currentThread().interrupt();
+                break;
+            }
+            commitByShard(batch);
+            batch.clear();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("{} accepted expenses were not committed before shutdown", queue.size());
+        }
+    }
+
+    // a transaction is on one database, so a batch spanning shards is committed shard by shard
+    private void commitByShard(List<Pending> batch) {
+        Map<Integer, List<Pending>> byShard = new TreeMap<>();
+        for (Pending p : batch) {
+            byShard.computeIfAbsent(p.shard() != null ? p.shard() : 0, shard -> new ArrayList<>()).add(p);
+        }
+        byShard.forEach((shard, shardBatch) -> ShardContext.run(shard, () -> commit(shardBatch)));
+    }
+
+    // one transaction for the whole batch; when it fails, each expense is retried alone so one bad row fails only itself
+    private void commit(List<Pending> batch) {
+        try {
+            commitTimer.record(() -> transactionTemplate.executeWithoutResult(status -> write(batch)));
+            mark(batch, IngestStatus.State.COMMITTED);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.warn("Could not commit expense {}", batch.get(0).expense().getExpenseId(), e);
+                mark(batch, IngestStatus.State.FAILED);
+                return;
+            }
+            for (Pending pending : batch) {
+                commit(List.of(pending));
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        Map<Long, Long> totals = new TreeMap<>();
+        Map<Long, RollupService.Delta> rollupDeltas = new TreeMap<>();
+        TreeSet<Long> users = new TreeSet<>();
+        int pending = 0;
+        for (Pending p : batch) {
+            Expense expense = p.expense();
+            expense.setBudget(em.getReference(Budget.class, p.budgetId()));
+            em.persist(expense);
+            totals.merge(p.budgetId(), (long) expense.getAmount(), Long::sum);
+            rollupDeltas.computeIfAbsent(p.budgetId(), id -> new RollupService.Delta()).add(expense, 1);
+            users.add(p.userId());
+            if (++pending == jdbcBatchSize) {
+                em.flush();
+                em.clear();
+                pending = 0;
+            }
+        }
+        em.flush();
+        em.clear();
+
+        // budgets in id order, so two writers touching the same budgets always lock them in the same order
+        for (Map.Entry<Long, Long> total : totals.entrySet()) {
+            budgetRepo.addAmountUsed(total.getKey(), Math.toIntExact(total.getValue()));
+            rollupService.apply(total.getKey(), rollupDeltas.get(total.getKey()));
+        }
+        for (Long userId : users) {
+            events.publishEvent(new DataChangeEvent(userId, DataChangeEvent.Kind.EXPENSES_INGESTED, null));
+        }
+    }
+
+    private void mark(List<Pending> batch, IngestStatus.State state) {
+        for (Pending p : batch) {
+            statuses.put(p.expense().getExpenseId(), new Tracked(p.userId(), state));
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        committer = new Thread(this::run, "expense-committer");
+        committer.start();
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        running = false;
+        if (committer == null) {
+            return;
+        }
+        try {
+            committer.join(shutdownTimeout.toMillis());
+            if (committer.isAlive()) {
+                committer.interrupt();
+                committer.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stops after the web server has stopped taking requests, and before the datasource closes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
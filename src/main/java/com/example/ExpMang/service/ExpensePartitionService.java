@@ -0,0 +1,101 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.config.ShardContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Keeps the MySQL expense table range-partitioned by month of creation. Expense ids start with their
+ * creation time, so {@code expenseid} itself is the partitioning column and the primary key needs no change.
+ * Every expense of a budget period is created after the period, so the period's reads and its rollup rebuild
+ * bound the id from below with {@link IdGenerator#minIdAfter} and only touch the months since it began.
+ * <p>
+ * Partitions are created {@code months-ahead} months in advance, and a {@code pfuture} catch-all partition
+ * takes anything beyond. MySQL refuses to partition a table with foreign keys; new schemas are created
+ * without one on the expense table, existing ones need theirs dropped first.
+ */
+@Service
+public class ExpensePartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpensePartitionService.class);
+
+    private static final String FUTURE = "pfuture";
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    private final boolean enabled;
+
+    private final int monthsAhead;
+
+    public ExpensePartitionService(@Value("${expmang.partitioning.enabled:false}") boolean enabled,
+                                   @Value("${expmang.partitioning.months-ahead:3}") int monthsAhead) {
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${expmang.partitioning.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        shardResolver.forEachShard(this::maintainShard);
+    }
+
+    private void maintainShard() {
+        YearMonth last = YearMonth.now(ZoneOffset.UTC).plusMonths(monthsAhead);
+        List<String> partitions = jdbcTemplate.queryForList(
+                "select partition_name from information_schema.partitions " +
+                        "where table_schema = database() and table_name = 'expense' order by partition_ordinal_position",
+                String.class);
+        List<String> months = partitions.stream().filter(Objects::nonNull).filter(name -> !name.equals(FUTURE)).toList();
+        if (months.isEmpty()) {
+            YearMonth first = YearMonth.from(Instant.ofEpochMilli(IdGenerator.EPOCH).atZone(ZoneOffset.UTC));
+            jdbcTemplate.execute("alter table expense partition by range (expenseid) (" + partitions(first, last) + ")");
+            log.info("Partitioned the expense table of shard {} by month from {} to {}", ShardContext.current(), first, last);
+            return;
+        }
+        YearMonth newest = YearMonth.parse(months.get(months.size() - 1).substring(1), MONTH);
+        if (newest.isBefore(last)) {
+            jdbcTemplate.execute("alter table expense reorganize partition " + FUTURE + " into ("
+                    + partitions(newest.plusMonths(1), last) + ")");
+            log.info("Added expense partitions up to {} on shard {}", last, ShardContext.current());
+        }
+    }
+
+    // one partition per month, each holding the ids created before the next month starts
+    static String partitions(YearMonth from, YearMonth to) {
+        StringJoiner clauses = new StringJoiner(", ");
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            long bound = IdGenerator.firstIdAt(month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+            clauses.add("partition p" + month.format(MONTH) + " values less than (" + bound + ")");
+        }
+        clauses.add("partition " + FUTURE + " values less than maxvalue");
+        return clauses.toString();
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.ExpMang.service;
 
-import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.BudgetView;
 import com.example.ExpMang.model.Expense;
-import com.example.ExpMang.model.User;
+import com.example.ExpMang.model.ExpenseCursor;
+import com.example.ExpMang.model.ExpensePage;
+import com.example.ExpMang.model.ExpenseQuery;
+import com.example.ExpMang.model.ExpenseView;
 import com.example.ExpMang.repo.BudgetRepo;
 import com.example.ExpMang.repo.ExpenseRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class ExpenseService {
@@ -19,49 +27,132 @@ public class ExpenseService {
     @Autowired
     private BudgetRepo budgetRepo;
 
-    public Expense addExpense(Expense expense, User user) {
-        Budget budget = budgetRepo.findByUser(user);
-        if (budget != null) {
-            expense.setBudget(budget);
-            budget.setAmountUsed(budget.getAmountUsed() + expense.getAmount());
-            budgetRepo.save(budget);
-            return expenseRepo.save(expense);
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private BudgetArchiveService archiveService;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    // The budget total is changed with a single delta statement after the expense row is written, so
+    // concurrent writers for the same budget never lose updates. That statement also takes the budget
+    // row lock before the rollup rows are touched, the same order the rollup rebuild uses.
+
+    @Transactional
+    public Expense addExpense(Expense expense, AuthUser user) {
+        Long budgetId = budgetService.findBudgetId(user).orElse(null);
+        if (budgetId != null) {
+            // ids are always assigned by the server
+            expense.setExpenseId(null);
+            expense.setBudget(budgetRepo.getReferenceById(budgetId));
+            Expense saved = expenseRepo.saveAndFlush(expense);
+            budgetRepo.addAmountUsed(budgetId, expense.getAmount());
+            rollupService.apply(budgetId, new RollupService.Delta().add(saved, 1));
+            events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.EXPENSE_ADDED, saved.getExpenseId()));
+            return saved;
         }
         return null;
     }
 
-    public List<Expense> getAllExpenses(User user) {
-        return expenseRepo.findByBudgetUser(user);
+    /**
+     * A page of the expenses of one budget period, the current one when {@code budgetId} is null.
+     * Returns null when the user has no budget with that id.
+     */
+    @Transactional(readOnly = true)
+    public ExpensePage getExpensePage(AuthUser user, Long budgetId, ExpenseQuery query) {
+        Optional<BudgetView> period = budgetId == null ? budgetService.findBudget(user) : budgetService.findPeriod(user, budgetId);
+        if (period.isEmpty()) {
+            return budgetId == null ? new ExpensePage(List.of(), null) : null;
+        }
+        long id = period.get().budgetid();
+        List<ExpenseView> rows = period.get().archived()
+                ? archiveService.findPage(user.id(), id, query)
+                : expenseRepo.findPage(id, IdGenerator.minIdAfter(id), query);
+        if (rows.size() > query.limit()) {
+            List<ExpenseView> items = rows.subList(0, query.limit());
+            return new ExpensePage(items, ExpenseCursor.after(items.get(items.size() - 1)).encode());
+        }
+        return new ExpensePage(rows, null);
     }
 
-    public Expense getExpenseById(Long id) {
-        return expenseRepo.findById(id).orElse(null);
+    @Transactional(readOnly = true)
+    public ExpenseView getExpenseById(Long id, AuthUser user) {
+        return expenseRepo.findViewById(id, user.id())
+                .or(() -> archiveService.find(user.id(), id))
+                .orElse(null);
     }
 
-    public Expense updateExpense(Long id, Expense expense) {
-        Expense existingExpense = expenseRepo.findById(id).orElse(null);
-        if (existingExpense != null) {
-            Budget budget = existingExpense.getBudget();
-            budget.setAmountUsed(budget.getAmountUsed() - existingExpense.getAmount() + expense.getAmount());
-            budgetRepo.save(budget);
+    @Transactional
+    public Expense updateExpense(Long id, Expense expense, AuthUser user) {
+        Owned owned = findForUpdate(id, user).orElse(null);
+        if (owned != null) {
+            long budgetId = owned.budgetId();
+            Expense existingExpense = owned.expense();
+            int delta = expense.getAmount() - existingExpense.getAmount();
+            RollupService.Delta rollupDelta = new RollupService.Delta().add(existingExpense, -1);
 
             existingExpense.setAmount(expense.getAmount());
             existingExpense.setDate(expense.getDate());
             existingExpense.setDescription(expense.getDescription());
             existingExpense.setType(expense.getType());
             existingExpense.setPayment_Method(expense.getPayment_Method());
-            return expenseRepo.save(existingExpense);
+            Expense saved = expenseRepo.saveAndFlush(existingExpense);
+
+            budgetRepo.addAmountUsed(budgetId, delta);
+            rollupService.apply(budgetId, rollupDelta.add(saved, 1));
+            events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.EXPENSE_UPDATED, saved.getExpenseId()));
+            return saved;
         }
         return null;
     }
 
-    public void deleteExpense(Long id) {
-        Expense expense = expenseRepo.findById(id).orElse(null);
-        if (expense != null) {
-            Budget budget = expense.getBudget();
-            budget.setAmountUsed(budget.getAmountUsed() - expense.getAmount());
-            budgetRepo.save(budget);
-            expenseRepo.deleteById(id);
+    @Transactional
+    public void deleteExpense(Long id, AuthUser user) {
+        Owned owned = findForUpdate(id, user).orElse(null);
+        if (owned != null) {
+            long budgetId = owned.budgetId();
+            Expense expense = owned.expense();
+            expenseRepo.delete(expense);
+            expenseRepo.flush();
+            budgetRepo.addAmountUsed(budgetId, -expense.getAmount());
+            rollupService.apply(budgetId, new RollupService.Delta().add(expense, -1));
+            events.publishEvent(new DataChangeEvent(user.id(), DataChangeEvent.Kind.EXPENSE_DELETED, id));
         }
     }
+
+    /**
+     * Locks the user's expense in the period that owns it: the current one, or a closed one whose expenses are
+     * still in the table. Only the periods open when the id was assigned can hold it. A closed period's budget
+     * row is locked before the expense row, the order archiving takes them in, so it cannot be archived under
+     * the write; the current period is never archived, and its writers only queue on the budget row for the
+     * delta update.
+     */
+    private Optional<Owned> findForUpdate(long id, AuthUser user) {
+        Long current = budgetService.findBudgetId(user).orElse(null);
+        if (current != null) {
+            Optional<Expense> expense = expenseRepo.findForUpdate(id, current);
+            if (expense.isPresent()) {
+                return Optional.of(new Owned(current, expense.get()));
+            }
+        }
+        Date closedSince = new Date(IdGenerator.earliestTimeOf(id));
+        for (Long budgetId : budgetRepo.findUnarchivedIdsClosedSince(user.id(), closedSince)) {
+            if (id < IdGenerator.minIdAfter(budgetId) || budgetRepo.lockUnarchived(budgetId) == 0) {
+                continue;
+            }
+            Optional<Expense> expense = expenseRepo.findForUpdate(id, budgetId);
+            if (expense.isPresent()) {
+                return Optional.of(new Owned(budgetId, expense.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private record Owned(long budgetId, Expense expense) {
+    }
 }
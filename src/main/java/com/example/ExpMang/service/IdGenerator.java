@@ -1,17 +1,126 @@
 package com.example.ExpMang.service;
 
-import com.aventrix.jnanoid.jnanoid.NanoIdUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.security.SecureRandom;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time-ordered ids built from milliseconds since {@link #EPOCH}, the node id and a per-millisecond
+ * sequence. Ids are unique across nodes as long as every node runs with its own
+ * {@code expmang.id.node-id}, grow monotonically per node and stay below 2^53 so the frontend can
+ * handle them as plain JavaScript numbers.
+ */
 @Service
 public class IdGenerator {
 
-    public String generateCustomNanoId() {
-        SecureRandom random = new SecureRandom();
-        char[] alphabet = "0123456789".toCharArray();
-        int size = 10;
+    static final long EPOCH = 1735689600000L; // 2025-01-01T00:00:00Z
+
+    static final int TIMESTAMP_BITS = 40;
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 8;
+
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    // how far ids may run ahead of the wall clock when a node exhausts its per-millisecond sequence
+    private static final long MAX_DRIFT_MS = 100;
+
+    // assumed upper bound for the clock difference between two nodes
+    private static final long MAX_CLOCK_SKEW_MS = 5 * 60_000;
+
+    private static volatile IdGenerator shared;
+
+    private final long node;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    // no default: two nodes left on the same id hand out the same ids, which only shows as key violations
+    public IdGenerator(@Value("${expmang.id.node-id:-1}") long node) {
+        if (node == -1) {
+            throw new IllegalStateException("expmang.id.node-id is not set: give every node its own id between 0 and "
+                    + MAX_NODE + ", or run a single node with the single-node profile");
+        }
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("expmang.id.node-id must be between 0 and " + MAX_NODE);
+        }
+        this.node = node;
+    }
+
+    @PostConstruct
+    void register() {
+        shared = this;
+    }
+
+    /**
+     * The generator configured by Spring, for callers that are not beans themselves such as
+     * Hibernate id generators. Fails rather than guess a node id when the bean does not exist yet,
+     * since ids made with another node's id could collide with that node's.
+     */
+    public static IdGenerator shared() {
+        IdGenerator generator = shared;
+        if (generator == null) {
+            throw new IllegalStateException("No IdGenerator bean has been created yet, ids need the configured expmang.id.node-id");
+        }
+        return generator;
+    }
+
+    /**
+     * The smallest id handed out at or after the given wall clock time, on any node.
+     */
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    /**
+     * Wall clock time encoded in an id. Ids assigned before these ids were introduced map to {@link #EPOCH}.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * A lower bound for every id any node assigns after {@code id} was assigned, allowing for clock skew
+     * between nodes. Rows created after a parent row can be looked up with {@code id >= minIdAfter(parentId)},
+     * which lets the database skip partitions of older ids.
+     */
+    public static long minIdAfter(long id) {
+        return firstIdAt(earliestTimeOf(id));
+    }
+
+    /**
+     * The earliest wall clock time, on any node, at which {@code id} can have been assigned, allowing for clock
+     * skew between nodes. A period that closed before then cannot hold a row with this id.
+     */
+    public static long earliestTimeOf(long id) {
+        return timestampOf(id) - MAX_CLOCK_SKEW_MS - MAX_DRIFT_MS;
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long last = current >>> SEQUENCE_BITS;
+
+            long next;
+            if (now > last) {
+                next = now << SEQUENCE_BITS;
+            } else if (last - now < MAX_DRIFT_MS) {
+                // same millisecond or a clock step back: keep counting, overflow carries into the timestamp
+                next = current + 1;
+            } else {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
 
-        return NanoIdUtils.randomNanoId(random, alphabet, size);
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & MAX_SEQUENCE);
+            }
+        }
     }
 }
@@ -0,0 +1,25 @@
+package com.example.ExpMang.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown when the write-behind queue cannot take another expense; answered with 503 and a Retry-After hint.
+ */
+public class IngestQueueFullException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public IngestQueueFullException(long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Expense ingestion is saturated, try again shortly");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return headers;
+    }
+}
@@ -1,16 +1,25 @@
 package com.example.ExpMang.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
-import org.springframework.cglib.core.internal.Function;
+import io.jsonwebtoken.LocatorAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
@@ -19,66 +28,118 @@ import java.util.Map;
 @Service
 public class JWTService {
 
-    private String secretkey = "";
-
-    public JWTService(){
-        try{
-            KeyGenerator keygen = KeyGenerator.getInstance("HmacSHA256");
-            SecretKey sk = keygen.generateKey();
-            secretkey = Base64.getEncoder().encodeToString(sk.getEncoded());
-        }catch(NoSuchAlgorithmException e){
-
-        }
+    static final long TOKEN_VALIDITY_MS = 60 * 360 * 360;
+
+    private final JwtKeyRing keys;
+
+    private final JwtParser parser;
+
+    // verified tokens keyed by their SHA-256 digest, each entry living no longer than the token itself
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    private final IdGenerator idGenerator;
+
+    private final TokenRevocationService revocations;
+
+    public JWTService(@Value("${expmang.jwt.cache.maximum-size:10000}") long cacheSize,
+                      JwtKeyRing keys,
+                      IdGenerator idGenerator,
+                      TokenRevocationService revocations,
+                      MeterRegistry registry) {
+        this.idGenerator = idGenerator;
+        this.revocations = revocations;
+        this.keys = keys;
+        // the key is picked by the kid header of each token, out of the keys the ring currently holds
+        parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return keys.verificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(Expiry.creating((String digest, VerifiedToken token) ->
+                        Duration.ofMillis(Math.max(0, token.expiration().getTime() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, verifiedTokens, "jwt.verified");
     }
 
     public String generateToken(String username) {
         Map<String, Object> claims = new HashMap<>();
+        JwtKeyRing.SigningKey signingKey = keys.signingKey();
 
         return Jwts.builder()
+                .header()
+                .keyId(signingKey.kid())
+                .and()
                 .claims()
                 .add(claims)
                 .subject(username)
+                .id(Long.toString(idGenerator.nextId(), 36))
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + 60 * 360 * 360)) // till this point generating the jwt with username, issue date and expiration date of token
+                .expiration(new Date(System.currentTimeMillis() + TOKEN_VALIDITY_MS)) // till this point generating the jwt with username, issue date and expiration date of token
                 .and() // also adding now security to jwt
-                .signWith(getKey())
+                .signWith(signingKey.key())
                 .compact();
 
     }
 
-    private SecretKey getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretkey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
+    /**
+     * Parses and checks the signature of the token once, then serves repeat calls for the same
+     * token from the cache until it expires. Returns null when the token is malformed, forged, expired
+     * or revoked; revocation is checked on every call, in memory.
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return revocations.isRevoked(cached) ? null : cached;
+            }
+            verifiedTokens.invalidate(digest);
+            return null;
+        }
 
-    public String extractUserName(String token) {
-        // extract the username from jwt token
-        return extractClaim(token, Claims::getSubject);
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.getId(), claims.getIssuedAt(), claims.getExpiration());
+        verifiedTokens.put(digest, verified);
+        return revocations.isRevoked(verified) ? null : verified;
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimResolver.apply(claims);
+    /**
+     * The token if it was verified before and has neither expired nor been revoked, without parsing it;
+     * null otherwise, including for a valid token seen for the first time.
+     */
+    public VerifiedToken cached(String token) {
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest(token));
+        return cached != null && !cached.isExpired() && !revocations.isRevoked(cached) ? cached : null;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public String extractUserName(String token) {
+        // extract the username from jwt token
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.username() : null;
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        VerifiedToken verified = verify(token);
+        return verified != null && verified.username().equals(userDetails.getUsername());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -0,0 +1,223 @@
+package com.example.ExpMang.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The keys tokens are signed and verified with, told apart by the {@code kid} header of each token. They live in
+ * a JSON keyset file that every node reads, so any node verifies tokens issued by any other and restarts keep
+ * everyone logged in. With {@code expmang.jwt.keys.file} empty the keys are only kept in memory.
+ * <p>
+ * A new key is added every {@code rotation-interval} but only signs from {@code activation-delay} later, once
+ * every node has read it. Older keys keep verifying until the last token they signed has expired. The node that
+ * finds a rotation due first writes the file, holding a lock on it so that nodes sharing it rotate once.
+ */
+@Service
+public class JwtKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final int KEY_BYTES = 32;
+
+    // assumed upper bound for the clock difference between two nodes
+    private static final long CLOCK_SKEW_MS = 60_000;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final Path file;
+
+    private final long rotationMs;
+
+    private final long activationMs;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile Loaded keys;
+
+    public JwtKeyRing(@Value("${expmang.jwt.keys.file:}") String file,
+                      @Value("${expmang.jwt.keys.rotation-interval:1d}") Duration rotationInterval,
+                      @Value("${expmang.jwt.keys.activation-delay:5m}") Duration activationDelay,
+                      @Value("${expmang.jwt.keys.refresh-interval:1m}") Duration refreshInterval,
+                      ObjectMapper objectMapper) {
+        if (activationDelay.compareTo(refreshInterval) <= 0) {
+            throw new IllegalArgumentException("expmang.jwt.keys.activation-delay must be longer than expmang.jwt.keys.refresh-interval");
+        }
+        if (rotationInterval.compareTo(activationDelay) <= 0) {
+            throw new IllegalArgumentException("expmang.jwt.keys.rotation-interval must be longer than expmang.jwt.keys.activation-delay");
+        }
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.rotationMs = rotationInterval.toMillis();
+        this.activationMs = activationDelay.toMillis();
+        this.objectMapper = objectMapper;
+        refresh();
+    }
+
+    /**
+     * The newest key that has become active, with its kid.
+     */
+    public SigningKey signingKey() {
+        List<SigningKey> newestFirst = keys.newestFirst();
+        long now = System.currentTimeMillis();
+        for (SigningKey key : newestFirst) {
+            if (key.activatesAt() <= now) {
+                return key;
+            }
+        }
+        // this node's clock is behind the one that wrote the file
+        return newestFirst.get(newestFirst.size() - 1);
+    }
+
+    /**
+     * The key for the kid, or null for an unknown or retired one.
+     */
+    public SecretKey verificationKey(String kid) {
+        return kid != null ? keys.byKid().get(kid) : null;
+    }
+
+    /**
+     * Picks up keys written by other nodes and rotates when due.
+     */
+    @Scheduled(fixedDelayString = "${expmang.jwt.keys.refresh-interval:1m}", initialDelayString = "${expmang.jwt.keys.refresh-interval:1m}")
+    public void refresh() {
+        try {
+            if (file != null) {
+                install(read());
+            }
+            long now = System.currentTimeMillis();
+            if (keys == null || rotationDue(keys.stored(), now)) {
+                rotate(now);
+            }
+        } catch (IOException e) {
+            if (keys == null) {
+                throw new UncheckedIOException("Cannot read or create the JWT keyset " + file, e);
+            }
+            log.warn("Could not refresh the JWT keyset {}, keeping the {} keys loaded", file, keys.stored().size(), e);
+        }
+    }
+
+    private void rotate(long now) throws IOException {
+        if (file == null) {
+            install(rotated(keys != null ? keys.stored() : List.of(), now));
+            return;
+        }
+        // file locks are held on behalf of the whole JVM, so threads and other application contexts in it take turns first
+        synchronized (JwtKeyRing.class) {
+            Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                // another node may have rotated since the file was read
+                List<StoredKey> stored = read();
+                if (rotationDue(stored, now)) {
+                    stored = rotated(stored, now);
+                    write(stored);
+                    log.info("Added JWT signing key {}, {} keys in {}", stored.get(0).kid(), stored.size(), file);
+                }
+                install(stored);
+            }
+        }
+    }
+
+    private boolean rotationDue(List<StoredKey> stored, long now) {
+        return stored.isEmpty() || stored.get(0).activatesAt() + rotationMs - activationMs <= now;
+    }
+
+    // the new key first, then every key that may still have signed an unexpired token
+    private List<StoredKey> rotated(List<StoredKey> stored, long now) {
+        byte[] secret = new byte[KEY_BYTES];
+        random.nextBytes(secret);
+        byte[] kid = new byte[8];
+        random.nextBytes(kid);
+        StoredKey added = new StoredKey(HexFormat.of().formatHex(kid), Base64.getEncoder().encodeToString(secret),
+                stored.isEmpty() ? now : now + activationMs);
+
+        List<StoredKey> kept = new ArrayList<>();
+        kept.add(added);
+        StoredKey successor = added;
+        for (StoredKey key : stored) {
+            // a key signs until its successor activates, and its tokens are valid for TOKEN_VALIDITY_MS after that
+            if (successor.activatesAt() + JWTService.TOKEN_VALIDITY_MS + CLOCK_SKEW_MS > now) {
+                kept.add(key);
+            }
+            successor = key;
+        }
+        return kept;
+    }
+
+    private List<StoredKey> read() throws IOException {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        List<StoredKey> stored = new ArrayList<>(objectMapper.readValue(file.toFile(), KeySet.class).keys());
+        stored.sort(Comparator.comparingLong(StoredKey::activatesAt).reversed());
+        return stored;
+    }
+
+    // written next to the file and moved over it so readers never see half a keyset; temp files are owner-only
+    private void write(List<StoredKey> stored) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), new KeySet(stored));
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // keys are decoded once, when the keyset changes, and shared by every later signature and verification
+    private void install(List<StoredKey> stored) {
+        Loaded current = keys;
+        if (stored.isEmpty() || current != null && current.stored().equals(stored)) {
+            return;
+        }
+        List<SigningKey> newestFirst = new ArrayList<>(stored.size());
+        Map<String, SecretKey> byKid = new HashMap<>();
+        for (StoredKey key : stored) {
+            SecretKey secret = current != null ? current.byKid().get(key.kid()) : null;
+            if (secret == null) {
+                secret = Keys.hmacShaKeyFor(Base64.getDecoder().decode(key.secret()));
+            }
+            newestFirst.add(new SigningKey(key.kid(), key.activatesAt(), secret));
+            byKid.put(key.kid(), secret);
+        }
+        keys = new Loaded(List.copyOf(stored), List.copyOf(newestFirst), Map.copyOf(byKid));
+    }
+
+    public record SigningKey(String kid, long activatesAt, SecretKey key) {
+    }
+
+    record StoredKey(String kid, String secret, long activatesAt) {
+    }
+
+    record KeySet(List<StoredKey> keys) {
+    }
+
+    private record Loaded(List<StoredKey> stored, List<SigningKey> newestFirst, Map<String, SecretKey> byKid) {
+    }
+}
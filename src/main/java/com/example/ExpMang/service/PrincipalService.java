@@ -0,0 +1,50 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.repo.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+public class PrincipalService {
+
+    private final UserRepo repo;
+
+    private final Cache<String, AuthUser> principals;
+
+    public PrincipalService(UserRepo repo,
+                            @Value("${expmang.principal.cache.maximum-size:10000}") long cacheSize,
+                            @Value("${expmang.principal.cache.ttl:10m}") Duration ttl,
+                            MeterRegistry registry) {
+        this.repo = repo;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, principals, "principals");
+    }
+
+    public AuthUser loadPrincipal(String username) throws UsernameNotFoundException {
+        AuthUser principal = principals.getIfPresent(username);
+        if (principal != null) {
+            return principal;
+        }
+        // looked up outside the cache's compute lock so a virtual thread never waits on JDBC while pinned
+        principal = repo.findPrincipalByUserName(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        principals.put(username, principal);
+        return principal;
+    }
+
+    public void evict(String username) {
+        principals.invalidate(username);
+    }
+}
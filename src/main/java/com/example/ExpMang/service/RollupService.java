@@ -0,0 +1,174 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.config.ShardContext;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.RollupDimension;
+import com.example.ExpMang.model.SpendingRollup;
+import com.example.ExpMang.model.SpendingSummary;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.example.ExpMang.repo.SpendingRollupRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains per-budget spending totals by category, month and payment method so the summary is
+ * answered from a handful of bucket rows instead of every expense.
+ */
+@Service
+public class RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupService.class);
+
+    private static final String NONE = "(none)";
+
+    @Autowired
+    private SpendingRollupRepo rollupRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    /**
+     * Changes to apply to a budget's buckets, collected from added (+1) and removed (-1) expenses.
+     */
+    public static class Delta {
+
+        private final Map<Bucket, long[]> buckets = new TreeMap<>();
+
+        public Delta add(Expense expense, int sign) {
+            return add(expense.getDate(), expense.getType(), expense.getPayment_Method(), expense.getAmount(), sign);
+        }
+
+        Delta add(Date date, String type, String paymentMethod, long amount, int sign) {
+            add(new Bucket(RollupDimension.CATEGORY, bucketOf(type)), amount, sign);
+            add(new Bucket(RollupDimension.MONTH, date != null ? monthOf(date) : NONE), amount, sign);
+            add(new Bucket(RollupDimension.PAYMENT_METHOD, bucketOf(paymentMethod)), amount, sign);
+            return this;
+        }
+
+        private void add(Bucket bucket, long amount, int sign) {
+            long[] totals = buckets.computeIfAbsent(bucket, b -> new long[2]);
+            totals[0] += sign * amount;
+            totals[1] += sign;
+        }
+    }
+
+    private record Bucket(RollupDimension dimension, String bucket) implements Comparable<Bucket> {
+
+        private static final Comparator<Bucket> ORDER =
+                Comparator.comparing(Bucket::dimension).thenComparing(Bucket::bucket);
+
+        @Override
+        public int compareTo(Bucket other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Upserts the delta into the budget's bucket rows. Must run inside the transaction of the expense
+     * write, after the budget row has been locked by its amountUsed update; buckets are written in a
+     * fixed order so concurrent writers cannot deadlock on them.
+     */
+    public void apply(long budgetId, Delta delta) {
+        delta.buckets.forEach((bucket, totals) -> {
+            if (totals[0] != 0 || totals[1] != 0) {
+                rollupRepo.addToBucket(budgetId, bucket.dimension().name(), bucket.bucket(), totals[0], totals[1]);
+            }
+        });
+    }
+
+    public SpendingSummary summarize(AuthUser user) {
+        Map<RollupDimension, Map<String, SpendingSummary.BucketTotal>> byDimension = new TreeMap<>();
+        for (RollupDimension dimension : RollupDimension.values()) {
+            byDimension.put(dimension, new LinkedHashMap<>());
+        }
+
+        Long budgetId = budgetService.findBudgetId(user).orElse(null);
+        if (budgetId != null) {
+            List<SpendingRollup> rollups = rollupRepo.findByIdBudgetid(budgetId);
+            rollups.sort(Comparator.comparing(r -> r.getId().getBucket()));
+            for (SpendingRollup rollup : rollups) {
+                if (rollup.getCount() > 0) {
+                    byDimension.get(rollup.getId().getDimension())
+                            .put(rollup.getId().getBucket(), new SpendingSummary.BucketTotal(rollup.getTotal(), rollup.getCount()));
+                }
+            }
+        }
+        return new SpendingSummary(byDimension.get(RollupDimension.CATEGORY),
+                byDimension.get(RollupDimension.MONTH),
+                byDimension.get(RollupDimension.PAYMENT_METHOD));
+    }
+
+    public boolean rebuild(AuthUser user) {
+        Long budgetId = budgetService.findBudgetId(user).orElse(null);
+        return budgetId != null && rebuild(budgetId);
+    }
+
+    /**
+     * Recomputes a budget's buckets from its raw expenses, holding the budget row lock so no expense
+     * write for that budget can interleave. Archived budgets keep the buckets they had when archived.
+     */
+    public boolean rebuild(long budgetId) {
+        Boolean rebuilt = transactionTemplate.execute(status -> {
+            if (budgetRepo.lockUnarchived(budgetId) == 0) {
+                return false;
+            }
+            rollupRepo.deleteByBudget(budgetId);
+            Delta delta = new Delta();
+            try (Stream<Object[]> rows = expenseRepo.streamRollupSource(budgetId, IdGenerator.minIdAfter(budgetId))) {
+                rows.forEach(row -> delta.add((Date) row[0], (String) row[1], (String) row[2], ((Number) row[3]).longValue(), 1));
+            }
+            apply(budgetId, delta);
+            return true;
+        });
+        return Boolean.TRUE.equals(rebuilt);
+    }
+
+    @Scheduled(cron = "${expmang.rollup.rebuild-cron:-}")
+    public void rebuildAll() {
+        shardResolver.forEachShard(() -> {
+            List<Long> budgetIds = budgetRepo.findUnarchivedIds();
+            long start = System.nanoTime();
+            for (Long budgetId : budgetIds) {
+                rebuild(budgetId);
+            }
+            log.info("Rebuilt spending rollups of {} budgets on shard {} in {} ms",
+                    budgetIds.size(), ShardContext.current(), (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    private static String bucketOf(String value) {
+        return value == null || value.isBlank() ? NONE : value;
+    }
+
+    private static String monthOf(Date date) {
+        return YearMonth.from(date.toInstant().atZone(ZoneOffset.UTC)).toString();
+    }
+}
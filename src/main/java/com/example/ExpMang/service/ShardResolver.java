@@ -0,0 +1,87 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.config.ShardContext;
+import com.example.ExpMang.repo.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Decides which shard a user lives on. New users are placed by a hash of their username, which every node
+ * computes alike before the user exists. A user is looked for on that shard first and then on the others,
+ * so users created before sharding was turned on, all on shard 0, are found where they are; where a user
+ * was found is cached. With one shard everything is on shard 0 and nothing is looked up.
+ */
+@Service
+public class ShardResolver {
+
+    private final UserRepo repo;
+
+    private final int shardCount;
+
+    // usernames never change and users are never moved, so entries only expire to bound the size
+    private final Cache<String, Integer> shards;
+
+    public ShardResolver(UserRepo repo,
+                         @Value("${expmang.datasource.shard-urls:}") List<String> shardUrls,
+                         @Value("${expmang.sharding.cache.maximum-size:100000}") long cacheSize,
+                         MeterRegistry registry) {
+        this.repo = repo;
+        this.shardCount = 1 + (int) shardUrls.stream().filter(url -> !url.isBlank()).count();
+        this.shards = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, shards, "user.shards");
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * The shard holding the user, or the one a new user of that name is to be created on. A name that is
+     * not registered costs one query per shard and is not cached, so it is found as soon as it registers.
+     */
+    public int shardOf(String username) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        Integer cached = shards.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        int home = placementOf(username, shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = (home + i) % shardCount;
+            // queried outside the cache's compute lock, like PrincipalService
+            if (ShardContext.call(shard, () -> repo.existsByUserName(username))) {
+                shards.put(username, shard);
+                return shard;
+            }
+        }
+        return home;
+    }
+
+    /**
+     * Runs the work once per shard with that shard bound, for jobs that go over every user's data.
+     */
+    public void forEachShard(Runnable work) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.run(shard, work);
+        }
+    }
+
+    static int placementOf(String username, int shardCount) {
+        CRC32C crc = new CRC32C();
+        crc.update(username.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+}
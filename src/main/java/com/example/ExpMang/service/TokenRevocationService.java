@@ -0,0 +1,189 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.model.RevokedToken;
+import com.example.ExpMang.repo.RevokedTokenRepo;
+import com.example.ExpMang.repo.UserRepo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Revoked tokens, checked on every authenticated request from memory alone. Two kinds of revocation:
+ * <ul>
+ *   <li>one token, by its {@code jti}, on logout. The ids sit in a map until their token expires, fronted by a
+ *   Bloom filter so the usual answer, not revoked, is a few bit reads;</li>
+ *   <li>every token of a user issued before a point in time, on logout everywhere, as a per-user watermark
+ *   kept for as long as a token issued before it could still be valid.</li>
+ * </ul>
+ * Both are written to the user's shard first and then applied here. Every node loads what is still in force at
+ * startup and polls all shards for newer revocations, so another node honours a logout within
+ * {@code expmang.revocation.refresh-interval}.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // rows committed with a slightly earlier timestamp, or on a node whose clock is behind, are still picked up
+    private static final long POLL_OVERLAP_MS = 60_000;
+
+    private final RevokedTokenRepo revokedTokenRepo;
+
+    private final UserRepo userRepo;
+
+    private final ShardResolver shardResolver;
+
+    // jti -> expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    // username -> tokens issued before this epoch milli are revoked
+    private final Map<String, Long> notBefore = new ConcurrentHashMap<>();
+
+    // replaced under the lock so no id is added to a filter that is being swapped out
+    private final Object bloomLock = new Object();
+
+    private volatile BloomFilter bloom;
+
+    private final int initialCapacity;
+
+    // not a monitor: polling queries every shard, which would pin a virtual thread's carrier
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    private long lastPoll;
+
+    public TokenRevocationService(RevokedTokenRepo revokedTokenRepo,
+                                  UserRepo userRepo,
+                                  ShardResolver shardResolver,
+                                  @Value("${expmang.revocation.initial-capacity:10000}") int initialCapacity,
+                                  MeterRegistry registry) {
+        this.revokedTokenRepo = revokedTokenRepo;
+        this.userRepo = userRepo;
+        this.shardResolver = shardResolver;
+        this.initialCapacity = initialCapacity;
+        this.bloom = new BloomFilter(initialCapacity, FALSE_POSITIVE_RATE);
+        Gauge.builder("tokens.revoked", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(registry);
+    }
+
+    /**
+     * Whether the token was revoked, by id or by its user's watermark. No I/O.
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        Long since = notBefore.get(token.username());
+        if (since != null && issuedAtMillis(token) < since) {
+            return true;
+        }
+        String id = token.id();
+        return id != null && bloom.mightContain(id) && revoked.containsKey(id);
+    }
+
+    /**
+     * Revokes one token until it expires. Must run with the user's shard bound.
+     */
+    public void revoke(VerifiedToken token) {
+        if (token.id() == null) {
+            revokeAll(token.username());
+            return;
+        }
+        RevokedToken row = new RevokedToken();
+        row.setJti(token.id());
+        row.setUserName(token.username());
+        row.setExpiresAt(token.expiration());
+        row.setRevokedAt(new Date());
+        revokedTokenRepo.save(row);
+        add(token.id(), token.expiration().getTime());
+    }
+
+    /**
+     * Revokes every token of the user issued until now. Must run with the user's shard bound.
+     */
+    public void revokeAll(String username) {
+        long now = System.currentTimeMillis();
+        userRepo.setTokensNotBefore(username, new Date(now));
+        notBefore.merge(username, now, Math::max);
+    }
+
+    @PostConstruct
+    void load() {
+        long now = System.currentTimeMillis();
+        revoked.clear();
+        notBefore.clear();
+        // older watermarks cannot revoke anything, every token issued before them has expired
+        poll(now - JWTService.TOKEN_VALIDITY_MS, now);
+        rebuildBloom();
+        log.info("Loaded {} revoked tokens and {} logout watermarks", revoked.size(), notBefore.size());
+    }
+
+    @Scheduled(fixedDelayString = "${expmang.revocation.refresh-interval:10s}", initialDelayString = "${expmang.revocation.refresh-interval:10s}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        poll(lastPoll - POLL_OVERLAP_MS, now);
+        notBefore.values().removeIf(since -> since <= now - JWTService.TOKEN_VALIDITY_MS);
+        // ids cannot be taken out of a Bloom filter, so it is rebuilt without the expired ones
+        if (revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            rebuildBloom();
+        }
+        shardResolver.forEachShard(() -> revokedTokenRepo.deleteExpired(new Date(now)));
+    }
+
+    private void poll(long since, long now) {
+        pollLock.lock();
+        try {
+            shardResolver.forEachShard(() -> {
+                for (RevokedToken row : revokedTokenRepo.findRevokedSince(new Date(since), new Date(now))) {
+                    add(row.getJti(), row.getExpiresAt().getTime());
+                }
+                for (Object[] row : userRepo.findTokenWatermarksSince(new Date(since))) {
+                    notBefore.merge((String) row[0], ((Date) row[1]).getTime(), Math::max);
+                }
+            });
+            lastPoll = now;
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    private void add(String id, long expiresAt) {
+        synchronized (bloomLock) {
+            revoked.put(id, expiresAt);
+            if (revoked.size() > bloom.capacity()) {
+                rebuildBloom();
+            } else {
+                bloom.add(id);
+            }
+        }
+    }
+
+    private void rebuildBloom() {
+        synchronized (bloomLock) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(initialCapacity, revoked.size() * 2), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::add);
+            bloom = rebuilt;
+        }
+    }
+
+    // the jti is a snowflake id, which carries the issue time to the millisecond; the iat claim has whole seconds
+    private static long issuedAtMillis(VerifiedToken token) {
+        if (token.id() != null) {
+            try {
+                return IdGenerator.timestampOf(Long.parseLong(token.id(), 36));
+            } catch (NumberFormatException e) {
+                // not one of ours, fall back to iat
+            }
+        }
+        return token.issuedAt().getTime();
+    }
+}
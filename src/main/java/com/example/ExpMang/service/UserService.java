@@ -1,5 +1,6 @@
 package com.example.ExpMang.service;
 
+import com.example.ExpMang.config.ShardContext;
 import com.example.ExpMang.model.User;
 import com.example.ExpMang.repo.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,13 +11,14 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.attribute.UserPrincipal;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepo repo;
@@ -28,13 +30,27 @@ public class UserService implements UserDetailsService {
     @Autowired
     private JWTService jwtService;
 
-    private BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(12);
+    @Autowired
+    private PrincipalService principalService;
+
+    @Autowired
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    @Autowired
+    private TokenRevocationService revocations;
 
+    // these run before a request has a principal, so they find the user's shard by name themselves
     public User register(User user){
+        user.setId(0);
         user.setPassword(encoder.encode(user.getPassword()));
         user.setUserName(user.getUserName());
         user.setEmail(user.getEmail());
-        return repo.save(user);
+        User saved = ShardContext.call(shardResolver.shardOf(user.getUsername()), () -> repo.save(user));
+        principalService.evict(saved.getUsername());
+        return saved;
     }
 
     public String verify(User user){
@@ -48,9 +64,35 @@ public class UserService implements UserDetailsService {
     }
 
 
+    /**
+     * Revokes the token the request was made with, or with {@code everywhere} every token of its user issued
+     * so far. Runs on the user's shard, which the request is already bound to.
+     */
+    public void logout(String token, boolean everywhere) {
+        VerifiedToken verified = jwtService.verify(token);
+        if (verified == null) {
+            return;
+        }
+        if (everywhere) {
+            revocations.revokeAll(verified.username());
+        } else {
+            revocations.revoke(verified);
+        }
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return repo.findByUserName(username)
+        return ShardContext.call(shardResolver.shardOf(username), () -> repo.findByUserName(username))
                 .orElseThrow(()-> new UsernameNotFoundException("User not found"));
     }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        return ShardContext.call(shardResolver.shardOf(user.getUsername()), () -> {
+            User existing = repo.findByUserName(user.getUsername())
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+            existing.setPassword(newPassword);
+            return repo.save(existing);
+        });
+    }
 }
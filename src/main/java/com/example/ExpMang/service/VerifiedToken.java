@@ -0,0 +1,11 @@
+package com.example.ExpMang.service;
+
+import java.util.Date;
+
+// id is the jti claim, null for tokens issued before tokens had one
+public record VerifiedToken(String username, String id, Date issuedAt, Date expiration) {
+
+    public boolean isExpired() {
+        return expiration.before(new Date());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.ExpMang;
+
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.User;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.example.ExpMang.repo.UserRepo;
+import com.example.ExpMang.service.JWTService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the application once on Tomcat's platform worker pool and once on virtual threads, drives both with
+ * the same closed-loop load of authenticated expense page reads and reports throughput and latency percentiles.
+ * Runs only with {@code mvn test -Pbenchmark}. The load is tuned with {@code -Dbenchmark.concurrency},
+ * {@code -Dbenchmark.warmup-seconds} and {@code -Dbenchmark.seconds}; passing {@code -Dbenchmark.datasource.url}
+ * (plus {@code .username} and {@code .password}) runs it against a real database instead of in-memory H2,
+ * which is where blocking JDBC makes the two modes differ.
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+    private static final int WARMUP_SECONDS = Integer.getInteger("benchmark.warmup-seconds", 5);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 15);
+    private static final int EXPENSES = 200;
+
+    @Test
+    void compareExecutionModes() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "%-10s %6s %10s %9s %9s %9s %9s",
+                "mode", "conc", "req/s", "p50 ms", "p99 ms", "max ms", "errors"));
+        for (boolean virtual : new boolean[]{false, true}) {
+            Result result = run(virtual);
+            report.add(String.format(Locale.ROOT, "%-10s %6d %10.0f %9.2f %9.2f %9.2f %9d",
+                    virtual ? "virtual" : "platform", CONCURRENCY, result.throughput(),
+                    result.percentile(50), result.percentile(99), result.percentile(100), result.errors()));
+            assertTrue(result.latencies().length > 0, "no requests completed");
+            assertEquals(0, result.errors(), "requests failed");
+        }
+
+        Path out = Path.of("target", "benchmark", "execution-modes.txt");
+        Files.createDirectories(out.getParent());
+        Files.write(out, report);
+        report.forEach(System.out::println);
+    }
+
+    private Result run(boolean virtual) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExpMangApplication.class)
+                .profiles("test")
+                .properties(properties(virtual, mode))
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String token = seed(context, "bench-" + mode);
+            URI uri = URI.create("http://localhost:" + port + "/api/expenses?limit=20");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build();
+
+            load(client, request, WARMUP_SECONDS);
+            return load(client, request, SECONDS);
+        }
+    }
+
+    private static String[] properties(boolean virtual, String mode) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + virtual,
+                "spring.jpa.show-sql=false",
+                "expmang.ratelimit.enabled=false"));
+        String url = System.getProperty("benchmark.datasource.url");
+        if (url != null) {
+            properties.add("spring.datasource.url=" + url);
+            properties.add("spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver");
+            properties.add("spring.datasource.username=" + System.getProperty("benchmark.datasource.username", ""));
+            properties.add("spring.datasource.password=" + System.getProperty("benchmark.datasource.password", ""));
+            properties.add("spring.jpa.hibernate.ddl-auto=update");
+        } else {
+            properties.add("spring.datasource.url=jdbc:h2:mem:bench_" + mode + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1");
+        }
+        return properties.toArray(String[]::new);
+    }
+
+    private static String seed(ConfigurableApplicationContext context, String userName) {
+        User user = new User();
+        user.setUserName(userName + "-" + System.currentTimeMillis());
+        user.setPassword("unused");
+        user = context.getBean(UserRepo.class).save(user);
+
+        Budget budget = new Budget();
+        budget.setAmount(1_000_000);
+        budget.setUser(user);
+        budget = context.getBean(BudgetRepo.class).save(budget);
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < EXPENSES; i++) {
+            Expense expense = new Expense();
+            expense.setAmount(i);
+            expense.setDate(new Date(i * 86_400_000L));
+            expense.setType("type-" + i % 5);
+            expense.setPayment_Method("card");
+            expense.setBudget(budget);
+            expenses.add(expense);
+        }
+        context.getBean(ExpenseRepo.class).saveAll(expenses);
+        return context.getBean(JWTService.class).generateToken(user.getUsername());
+    }
+
+    // closed loop: every client sends its next request as soon as the previous response arrives
+    private static Result load(HttpClient client, HttpRequest request, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> clients = new ArrayList<>();
+        long started = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                clients.add(pool.submit(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(samples, count);
+                }));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        long[] latencies = new long[0];
+        for (Future<long[]> f : clients) {
+            long[] samples = f.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + samples.length);
+            System.arraycopy(samples, 0, latencies, offset, samples.length);
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, errors.get(), latencies.length / elapsedSeconds);
+    }
+
+    private record Result(long[] latencies, long errors, double throughput) {
+
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+    }
+}
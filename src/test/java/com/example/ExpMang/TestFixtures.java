@@ -0,0 +1,83 @@
+package com.example.ExpMang;
+
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.User;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.UserRepo;
+import com.example.ExpMang.service.JWTService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Users, budgets, expenses and tokens for the tests. Picked up by the component scan of every test context,
+ * so it saves through the repositories, and onto the database or shard, of the test that uses it.
+ */
+@Component
+public class TestFixtures {
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private JWTService jwtService;
+
+    /**
+     * Saves a user who cannot log in with a password, tests authenticate them with a token.
+     */
+    public AuthUser user(String name) {
+        User user = saveUser(name);
+        return new AuthUser(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Saves a user with a current budget of the given amount.
+     */
+    public AuthUser userWithBudget(String name, int amount) {
+        User user = saveUser(name);
+        Budget budget = budget(amount);
+        budget.setUser(user);
+        budgetRepo.save(budget);
+        return new AuthUser(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Saves a user and returns an Authorization header value for them.
+     */
+    public String bearer(String name) {
+        user(name);
+        return bearerFor(name);
+    }
+
+    public String bearerFor(String name) {
+        return "Bearer " + jwtService.generateToken(name);
+    }
+
+    public static Budget budget(int amount) {
+        Budget budget = new Budget();
+        budget.setAmount(amount);
+        return budget;
+    }
+
+    public static Expense expense(int amount, String type, Date date) {
+        Expense expense = new Expense();
+        expense.setAmount(amount);
+        expense.setType(type);
+        expense.setDate(date);
+        expense.setPayment_Method("card");
+        return expense;
+    }
+
+    private User saveUser(String name) {
+        User user = new User();
+        user.setUserName(name);
+        user.setPassword("unused");
+        return userRepo.save(user);
+    }
+}
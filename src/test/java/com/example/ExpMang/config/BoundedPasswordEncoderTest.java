@@ -0,0 +1,86 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.model.User;
+import com.example.ExpMang.repo.UserRepo;
+import com.example.ExpMang.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "expmang.password.bcrypt-cost=5")
+@ActiveProfiles("test")
+class BoundedPasswordEncoderTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Test
+    void rejectsBeyondQueueInsteadOfWaiting() throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(12, 1, 1, Duration.ofSeconds(2), new SimpleMeterRegistry());
+        int attempts = 6;
+        ExecutorService callers = Executors.newFixedThreadPool(attempts);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                results.add(callers.submit(() -> encoder.encode("secret")));
+            }
+            int hashed = 0;
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    assertTrue(new BCryptPasswordEncoder().matches("secret", result.get()));
+                    hashed++;
+                } catch (ExecutionException e) {
+                    PasswordHashingRejectedException rejection = assertInstanceOf(PasswordHashingRejectedException.class, e.getCause());
+                    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection.getStatusCode());
+                    assertEquals("2", rejection.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                    rejected++;
+                }
+            }
+            assertTrue(hashed >= 1, "nothing was hashed");
+            assertTrue(rejected >= 1, "one worker and one queue slot took all " + attempts + " concurrent hashes");
+        } finally {
+            callers.shutdownNow();
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    void loginRehashesPasswordsMadeWithAnOlderCost() {
+        User user = new User();
+        user.setUserName("rehash");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+        String oldHash = userRepo.save(user).getPassword();
+
+        User login = new User();
+        login.setUserName("rehash");
+        login.setPassword("secret");
+        assertFalse(userService.verify(login).isEmpty());
+
+        String newHash = userRepo.findByUserName("rehash").orElseThrow().getPassword();
+        assertNotEquals(oldHash, newHash);
+        assertTrue(newHash.startsWith("$2a$05$"), newHash);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.hamcrest.Matchers.matchesRegex;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "expmang.ratelimit.login.capacity=3",
+        "expmang.ratelimit.login.refill-every=1h",
+        "expmang.ratelimit.api.capacity=5",
+        "expmang.ratelimit.api.refill-every=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RateLimitFilterTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void loginIsLimitedPerAddress() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(login("10.0.0.1")).andExpect(status().isUnauthorized());
+        }
+        mvc.perform(login("10.0.0.1"))
+                .andExpect(status().isTooManyRequests())
+                // the next request is let through once an hour has passed since the first
+                .andExpect(header().string("Retry-After", matchesRegex("35\\d\\d|3600")));
+        mvc.perform(login("10.0.0.2")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void apiIsLimitedPerUserAndForgedTokensCountAgainstTheirAddress() throws Exception {
+        String alice = fixtures.bearer("limited-alice");
+        String bob = fixtures.bearer("limited-bob");
+
+        // the first request verifies the token and is counted against the address
+        mvc.perform(budgets(alice, "10.0.1.1")).andExpect(status().isOk());
+        for (int i = 0; i < 5; i++) {
+            mvc.perform(budgets(alice, "10.0.1.1")).andExpect(status().isOk());
+        }
+        mvc.perform(budgets(alice, "10.0.1.2")).andExpect(status().isTooManyRequests());
+        mvc.perform(budgets(bob, "10.0.1.1")).andExpect(status().isOk());
+
+        // a token naming bob that does not verify is limited by where it comes from, not as bob
+        String forged = bob.substring(0, bob.lastIndexOf('.') + 1) + "forged";
+        for (int i = 0; i < 5; i++) {
+            mvc.perform(budgets(forged, "10.0.1.3")).andExpect(status().isUnauthorized());
+        }
+        mvc.perform(budgets(forged, "10.0.1.3")).andExpect(status().isTooManyRequests());
+        mvc.perform(budgets(bob, "10.0.1.3")).andExpect(status().isOk());
+    }
+
+    @Test
+    void loginBehindATrustedProxyIsLimitedPerForwardedAddress() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        // the test client connects from loopback, which is a trusted proxy
+        for (int i = 0; i < 3; i++) {
+            assertEquals(401, forwardedLogin(client, "203.0.113.1").statusCode());
+        }
+        assertEquals(429, forwardedLogin(client, "203.0.113.1").statusCode());
+        assertEquals(401, forwardedLogin(client, "203.0.113.2").statusCode());
+    }
+
+    private HttpResponse<Void> forwardedLogin(HttpClient client, String address) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/login"))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .header("X-Forwarded-For", address)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"userName\":\"nobody\",\"password\":\"wrong\"}"))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static MockHttpServletRequestBuilder login(String address) {
+        return post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userName\":\"nobody\",\"password\":\"wrong\"}")
+                .with(request -> {
+                    request.setRemoteAddr(address);
+                    return request;
+                });
+    }
+
+    private static MockHttpServletRequestBuilder budgets(String auth, String address) {
+        return get("/api/budgets")
+                .header("Authorization", auth)
+                .with(request -> {
+                    request.setRemoteAddr(address);
+                    return request;
+                });
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.ExpenseQuery;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.example.ExpMang.service.ExpenseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica that stops replicating after a snapshot,
+ * so which one served a read shows in what it returns. A second replica points at a server that is not
+ * there and must never fail a read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTest.PRIMARY,
+        "expmang.datasource.replica-urls=" + ReadWriteRoutingTest.REPLICA + ",jdbc:h2:tcp://localhost:1/missing",
+        "expmang.datasource.replica-connection-timeout=250ms",
+        "expmang.datasource.read-your-writes-window=500ms"
+})
+@ActiveProfiles("test")
+class ReadWriteRoutingTest {
+
+    static final String PRIMARY = "jdbc:h2:mem:routing_primary;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    static final String REPLICA = "jdbc:h2:mem:routing_replica;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readsGoToReplicaExceptRightAfterOwnWrite() throws Exception {
+        AuthUser writer = fixtures.userWithBudget("routing-writer", 1_000);
+        AuthUser other = fixtures.userWithBudget("routing-other", 1_000);
+        expenseRepo.save(expense(writer, 1));
+        replicate();
+
+        // the writer's own write pins their reads to the primary
+        authenticate(writer);
+        expenseService.addExpense(expense(null, 2), writer);
+        assertEquals(2, page(writer));
+
+        // another user's write that has not reached the replica yet stays invisible to them
+        expenseRepo.save(expense(other, 3));
+        authenticate(other);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(0, page(other));
+        }
+        assertEquals(0, registry.counter("datasource.reads", "target", "primary-fallback").count());
+
+        // once the window has passed the writer reads the lagging replica again
+        Thread.sleep(800);
+        authenticate(writer);
+        assertEquals(1, page(writer));
+    }
+
+    private int page(AuthUser user) {
+        return expenseService.getExpensePage(user, null, new ExpenseQuery(null, null, null, null, null, 20)).items().size();
+    }
+
+    private void replicate() throws Exception {
+        Path snapshot = Files.createTempFile("routing", ".sql");
+        try (Connection primary = dataSource.getConnection(); Statement statement = primary.createStatement()) {
+            statement.execute("SCRIPT TO '" + snapshot + "'");
+        }
+        try (Connection replica = DriverManager.getConnection(REPLICA, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("RUNSCRIPT FROM '" + snapshot + "'");
+        }
+        Files.delete(snapshot);
+    }
+
+    private static void authenticate(AuthUser user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private Expense expense(AuthUser owner, int amount) {
+        Expense expense = TestFixtures.expense(amount, "food", new Date(amount * 86_400_000L));
+        if (owner != null) {
+            expense.setBudget(budgetRepo.findCurrentByUserid(owner.id()));
+        }
+        return expense;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.ExpMang.config;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.service.ShardResolver;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Three in-memory H2 databases are the shards; where a user's rows ended up is checked on each of them directly.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ShardingTest.SHARD_0,
+        "expmang.datasource.shard-urls=" + ShardingTest.SHARD_1 + "," + ShardingTest.SHARD_2
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ShardingTest {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard_0;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:shard_1;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:shard_2;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final List<String> SHARDS = List.of(SHARD_0, SHARD_1, SHARD_2);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void usersAndTheirDataLiveOnTheirOwnShard() throws Exception {
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            String name = "sharded-" + i;
+            mvc.perform(post("/register").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"userName\":\"" + name + "\",\"password\":\"secret\"}"))
+                    .andExpect(status().isOk());
+            String token = mvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"userName\":\"" + name + "\",\"password\":\"secret\"}"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            addBudgetAndExpense("Bearer " + token, 10 + i);
+
+            int shard = shardResolver.shardOf(name);
+            used.add(shard);
+            for (int s = 0; s < SHARDS.size(); s++) {
+                int expected = s == shard ? 1 : 0;
+                assertEquals(expected, count(s, "select count(*) from user where userName = ?", name), name + " on shard " + s);
+                assertEquals(expected, count(s, "select count(*) from expense e join budget b on e.budget_budgetid = b.budgetid " +
+                        "join user u on b.user_userid = u.userid where u.userName = ?", name), name + " expense on shard " + s);
+            }
+        }
+        assertTrue(used.size() > 1, "six users all hashed to one shard");
+    }
+
+    @Test
+    void userCreatedBeforeShardingIsFoundOnShardZero() throws Exception {
+        String name = "legacy-0";
+        for (int i = 1; shardResolver.shardOf(name) == 0; i++) {
+            name = "legacy-" + i;
+        }
+        String legacy = name;
+        ShardContext.run(0, () -> fixtures.user(legacy));
+
+        assertEquals(0, shardResolver.shardOf(legacy));
+        addBudgetAndExpense(fixtures.bearerFor(legacy), 42);
+        assertEquals(1, count(0, "select count(*) from expense where amount = ?", 42));
+        assertNotEquals(0, count(0, "select count(*) from budget", null));
+    }
+
+    private void addBudgetAndExpense(String auth, int amount) throws Exception {
+        mvc.perform(post("/api/budgets").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":1000}"))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/expenses").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":" + amount + ",\"type\":\"food\",\"payment_Method\":\"card\",\"date\":\"2025-06-01T00:00:00Z\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/expenses").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].amount").value(amount));
+    }
+
+    private static int count(int shard, String sql, Object parameter) throws Exception {
+        try (Connection connection = DriverManager.getConnection(SHARDS.get(shard), "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (parameter != null) {
+                statement.setObject(1, parameter);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
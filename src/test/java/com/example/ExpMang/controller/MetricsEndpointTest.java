@@ -0,0 +1,71 @@
+package com.example.ExpMang.controller;
+
+import com.example.ExpMang.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class MetricsEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void prometheusEndpointExposesHotPathPercentiles() throws Exception {
+        String auth = fixtures.bearer("metrics");
+
+        assertEquals(200, get(port, "/api/budgets", auth).statusCode());
+        assertEquals(401, get(port, "/api/expenses", "Bearer forged").statusCode());
+
+        // not on the public port, with or without a token
+        assertEquals(404, get(port, "/actuator/prometheus", null).statusCode());
+        assertEquals(404, get(port, "/actuator/prometheus", auth).statusCode());
+        assertEquals(404, get(port, "/actuator/health", auth).statusCode());
+
+        assertEquals(200, get(managementPort, "/actuator/health", null).statusCode());
+        HttpResponse<String> prometheus = get(managementPort, "/actuator/prometheus", null);
+        assertEquals(200, prometheus.statusCode());
+        String body = prometheus.body();
+        assertContains(body, "http_server_requests_seconds{error=\"none\",exception=\"none\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/budgets\",quantile=\"0.99\"}");
+        assertContains(body, "jwt_filter_seconds{outcome=\"authenticated\",quantile=\"0.999\"}");
+        assertContains(body, "jwt_filter_seconds_count{outcome=\"rejected\"} 1");
+        assertContains(body, "spring_data_repository_invocations_seconds{");
+        assertContains(body, "password_hash_seconds{operation=\"matches\",quantile=\"0.5\"}");
+        assertContains(body, "executor_queued_tasks{name=\"password.hashing\"}");
+    }
+
+    private HttpResponse<String> get(int port, String path, String authorization) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void assertContains(String body, String expected) {
+        assertTrue(body.contains(expected), () -> "missing " + expected);
+    }
+}
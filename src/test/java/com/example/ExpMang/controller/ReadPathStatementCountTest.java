@@ -0,0 +1,118 @@
+package com.example.ExpMang.controller;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReadPathStatementCountTest {
+
+    private static final int EXPENSES = 20;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void everyReadIsOneStatementWithoutEntityLoads() throws Exception {
+        AuthUser owner = fixtures.userWithBudget("reader", 1000);
+        Budget budget = budgetRepo.findCurrentByUserid(owner.id());
+        Long lastId = null;
+        for (int i = 0; i < EXPENSES; i++) {
+            Expense expense = TestFixtures.expense(i, "food", new Date(i * 86_400_000L));
+            expense.setBudget(budget);
+            lastId = expenseRepo.save(expense).getExpenseId();
+        }
+        String auth = fixtures.bearerFor("reader");
+
+        // warms the principal and data version caches so only the read itself is counted
+        mvc.perform(get("/api/budgets").header("Authorization", auth)).andExpect(status().isOk());
+
+        statistics.clear();
+        mvc.perform(get("/api/expenses").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(EXPENSES));
+        assertReads(1);
+
+        statistics.clear();
+        mvc.perform(get("/api/expenses/" + lastId).header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expenseid").value(lastId));
+        assertReads(1);
+
+        statistics.clear();
+        String etag = mvc.perform(get("/api/budgets").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.amount").value(1000))
+                .andReturn().getResponse().getHeader("ETag");
+        assertReads(0);
+
+        statistics.clear();
+        mvc.perform(get("/api/expenses").header("Authorization", auth).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        assertReads(0);
+
+        // a committed write drops the cached version, and the old tag no longer matches
+        mvc.perform(post("/api/expenses").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":5}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/expenses").header("Authorization", auth).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+
+        String intruder = fixtures.bearer("intruder");
+        statistics.clear();
+        mvc.perform(get("/api/expenses/" + lastId).header("Authorization", intruder))
+                .andExpect(status().isNotFound());
+        // the intruder's principal lookup and data version plus the ownership-filtered read and the archived
+        // periods that could hold the id
+        assertReads(4);
+    }
+
+    private void assertReads(long statements) {
+        assertEquals(statements, statistics.getPrepareStatementCount(), "statements prepared");
+        assertEquals(0, statistics.getEntityLoadCount(), "entities hydrated");
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.ExpMang.controller;
+
+import com.example.ExpMang.TestFixtures;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "expmang.ratelimit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SummaryControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void bucketsFollowAddsUpdatesAndDeletesAndRebuildReproducesThem() throws Exception {
+        String auth = fixtures.bearer("summarizer");
+        mvc.perform(post("/api/budgets").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":1000,\"startDate\":\"2026-09-01\",\"endDate\":\"2026-10-31\"}"))
+                .andExpect(status().isOk());
+
+        long rent = add(auth, "{\"amount\":500,\"date\":\"2026-09-01\",\"type\":\"home\",\"payment_Method\":\"card\"}");
+        long lunch = add(auth, "{\"amount\":12,\"date\":\"2026-10-02\",\"type\":\"food\",\"payment_Method\":\"card\"}");
+        add(auth, "{\"amount\":8,\"date\":\"2026-10-03\",\"type\":\"food\",\"payment_Method\":\"cash\"}");
+        add(auth, "{\"amount\":3}");
+
+        String summary = summary(auth);
+        assertBucket(summary, "byCategory", "home", 500, 1);
+        assertBucket(summary, "byCategory", "food", 20, 2);
+        assertBucket(summary, "byCategory", "(none)", 3, 1);
+        assertBucket(summary, "byMonth", "2026-09", 500, 1);
+        assertBucket(summary, "byMonth", "2026-10", 20, 2);
+        assertBucket(summary, "byMonth", "(none)", 3, 1);
+        assertBucket(summary, "byPaymentMethod", "card", 512, 2);
+        assertBucket(summary, "byPaymentMethod", "cash", 8, 1);
+
+        // moves the lunch to another category, month and payment method
+        mvc.perform(put("/api/expenses/" + lunch).header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":15,\"date\":\"2026-09-20\",\"type\":\"travel\",\"payment_Method\":\"cash\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/api/expenses/" + rent).header("Authorization", auth)).andExpect(status().isOk());
+
+        summary = summary(auth);
+        assertFalse(summary.contains("\"home\""), summary);
+        assertBucket(summary, "byCategory", "food", 8, 1);
+        assertBucket(summary, "byCategory", "travel", 15, 1);
+        assertBucket(summary, "byMonth", "2026-09", 15, 1);
+        assertBucket(summary, "byMonth", "2026-10", 8, 1);
+        assertBucket(summary, "byPaymentMethod", "cash", 23, 2);
+        assertEquals(3, JsonPath.<Integer>read(summary, "$.byCategory.length()"), summary);
+        assertEquals(2, JsonPath.<Integer>read(summary, "$.byPaymentMethod.length()"), summary);
+
+        // a rebuild from the raw expenses lands on the same buckets, also after they were lost
+        jdbcTemplate.update("delete from spending_rollup where budgetid in " +
+                "(select b.budgetid from budget b join user u on u.userid = b.user_userid where u.userName = ?)", "summarizer");
+        String rebuilt = mvc.perform(post("/api/summary/rebuild").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(summary, rebuilt);
+        assertEquals(summary, summary(auth));
+    }
+
+    @Test
+    void rebuildWithoutABudgetIsNotFound() throws Exception {
+        String auth = fixtures.bearer("summarizer-without-budget");
+        mvc.perform(post("/api/summary/rebuild").header("Authorization", auth)).andExpect(status().isNotFound());
+        String summary = summary(auth);
+        assertEquals("{\"byCategory\":{},\"byMonth\":{},\"byPaymentMethod\":{}}", summary);
+    }
+
+    private long add(String auth, String expense) throws Exception {
+        String body = mvc.perform(post("/api/expenses").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(expense))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.<Number>read(body, "$.expenseid").longValue();
+    }
+
+    private String summary(String auth) throws Exception {
+        return mvc.perform(get("/api/summary").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static void assertBucket(String summary, String dimension, String bucket, long total, long count) {
+        String path = "$." + dimension + "['" + bucket + "']";
+        assertEquals(total, JsonPath.<Number>read(summary, path + ".total").longValue(), summary);
+        assertEquals(count, JsonPath.<Number>read(summary, path + ".count").longValue(), summary);
+    }
+}
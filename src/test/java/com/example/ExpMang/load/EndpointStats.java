@@ -0,0 +1,69 @@
+package com.example.ExpMang.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count of one endpoint, recorded by many clients at once.
+ * Latencies are kept in microseconds with three significant digits up to one minute.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void record(long nanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_MICROS));
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    long count() {
+        return latencies.getTotalCount() + errors.sum();
+    }
+
+    double throughput(double seconds) {
+        return latencies.getTotalCount() / seconds;
+    }
+
+    double errorRate() {
+        long count = count();
+        return count == 0 ? 0 : (double) errors.sum() / count;
+    }
+
+    double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMillis() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+
+    void writeDistribution(Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            latencies.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.ExpMang.load;
+
+import com.example.ExpMang.ExpMangApplication;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.User;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.example.ExpMang.repo.UserRepo;
+import com.example.ExpMang.service.RollupService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test: boots the application on a random port against in-memory H2 in MySQL mode (or the
+ * database given with {@code -Dload.datasource.url}, {@code .username} and {@code .password}), seeds users with
+ * budgets and expenses, and drives a weighted mix of logins, budget reads, paged expense reads and expense
+ * writes from concurrent clients. Per-endpoint throughput, latency percentiles and error rates are written to
+ * {@code target/load-test}, along with a full latency distribution per endpoint.
+ * <p>
+ * Runs only with {@code mvn test -Pbenchmark -Dtest=LoadTest}. The run is sized with {@code -Dload.users},
+ * {@code -Dload.expenses}, {@code -Dload.clients}, {@code -Dload.warmup-seconds} and {@code -Dload.seconds}.
+ * The measured numbers are always written to {@code target/load-test/baseline.properties}. Numbers from one
+ * machine say nothing about another, so baselines are kept per machine: the run compares against
+ * {@code src/test/resources/load-test-baselines/<machine>.properties}, where the machine is
+ * {@code -Dload.machine} or else the host name, and fails when an endpoint regresses past it. To record one, copy
+ * {@code baseline.properties} from a run on that machine there and check it in; {@code -Dload.baseline=<file>}
+ * compares against any other file. An endpoint whose error rate is above {@code error-rate} fails the run whether
+ * or not there is a baseline: 0 unless the baseline or {@code -Dload.error-rate} allows more.
+ */
+@Tag("benchmark")
+class LoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final int EXPENSES = Integer.getInteger("load.expenses", 100);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 64);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 10);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final String PASSWORD = "load-test-password";
+    private static final String[] TYPES = {"food", "rent", "travel", "utilities", "health"};
+    private static final Path OUT = Path.of("target", "load-test");
+    private static final Path BASELINES = Path.of("src", "test", "resources", "load-test-baselines");
+
+    enum Endpoint {
+        LOGIN(2),
+        GET_BUDGET(25),
+        LIST_EXPENSES(40),
+        ADD_EXPENSE(15),
+        UPDATE_EXPENSE(12),
+        DELETE_EXPENSE(6);
+
+        final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        static Endpoint pick(ThreadLocalRandom random) {
+            int roll = random.nextInt(100);
+            for (Endpoint endpoint : values()) {
+                roll -= endpoint.weight;
+                if (roll < 0) {
+                    return endpoint;
+                }
+            }
+            return LIST_EXPENSES;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private URI base;
+
+    @Test
+    void sustainsBaselineThroughputAndLatency() throws Exception {
+        Map<Endpoint, EndpointStats> stats;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExpMangApplication.class)
+                .profiles("test")
+                .properties(properties())
+                .run()) {
+            base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+            List<String> users = seed(context);
+
+            run(users, WARMUP_SECONDS);
+            stats = run(users, SECONDS);
+        }
+
+        List<String> failures = report(stats);
+        assertTrue(failures.isEmpty(), "regressed past baseline or error rate limit:\n" + String.join("\n", failures));
+    }
+
+    private static String[] properties() {
+        List<String> properties = new ArrayList<>(List.of("server.port=0", "spring.jpa.show-sql=false", "expmang.ratelimit.enabled=false"));
+        String url = System.getProperty("load.datasource.url");
+        if (url != null) {
+            properties.add("spring.datasource.url=" + url);
+            properties.add("spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver");
+            properties.add("spring.datasource.username=" + System.getProperty("load.datasource.username", ""));
+            properties.add("spring.datasource.password=" + System.getProperty("load.datasource.password", ""));
+            properties.add("spring.jpa.hibernate.ddl-auto=update");
+        } else {
+            properties.add("spring.datasource.url=jdbc:h2:mem:load_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        }
+        return properties.toArray(String[]::new);
+    }
+
+    private static List<String> seed(ConfigurableApplicationContext context) {
+        UserRepo userRepo = context.getBean(UserRepo.class);
+        BudgetRepo budgetRepo = context.getBean(BudgetRepo.class);
+        ExpenseRepo expenseRepo = context.getBean(ExpenseRepo.class);
+        RollupService rollupService = context.getBean(RollupService.class);
+        // one hash for everyone: seeding should not spend minutes in BCrypt
+        String hash = new BCryptPasswordEncoder(12).encode(PASSWORD);
+        String prefix = "load-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        long now = System.currentTimeMillis();
+
+        List<String> userNames = new ArrayList<>(USERS);
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUserName(prefix + u);
+            user.setEmail(prefix + u + "@example.com");
+            user.setPassword(hash);
+            user = userRepo.save(user);
+
+            Budget budget = new Budget();
+            budget.setAmount(1_000_000);
+            budget.setUser(user);
+            List<Expense> expenses = new ArrayList<>(EXPENSES);
+            int used = 0;
+            for (int e = 0; e < EXPENSES; e++) {
+                Expense expense = new Expense();
+                expense.setAmount(1 + e % 500);
+                expense.setDate(new Date(now - e * 3_600_000L));
+                expense.setDescription("seeded " + e);
+                expense.setType(TYPES[e % TYPES.length]);
+                expense.setPayment_Method(e % 2 == 0 ? "card" : "cash");
+                expenses.add(expense);
+                used += expense.getAmount();
+            }
+            budget.setAmountUsed(used);
+            budget = budgetRepo.save(budget);
+            for (Expense expense : expenses) {
+                expense.setBudget(budget);
+            }
+            expenseRepo.saveAll(expenses);
+            rollupService.rebuild(budget.getBudgetId());
+            userNames.add(user.getUserName());
+        }
+        return userNames;
+    }
+
+    private Map<Endpoint, EndpointStats> run(List<String> users, int seconds) throws Exception {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats(endpoint.key()));
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                String userName = users.get(c % users.size());
+                pool.submit(() -> new Client(userName, stats).run(deadline));
+            }
+        }
+        return stats;
+    }
+
+    /** One simulated user session; keeps its token and the ids of the expenses it created. */
+    private final class Client {
+
+        private final String userName;
+
+        private final Map<Endpoint, EndpointStats> stats;
+
+        private final Deque<Long> created = new ArrayDeque<>();
+
+        private String token;
+
+        private String nextCursor;
+
+        Client(String userName, Map<Endpoint, EndpointStats> stats) {
+            this.userName = userName;
+            this.stats = stats;
+        }
+
+        Void run(long deadline) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                Endpoint endpoint = token == null ? Endpoint.LOGIN : Endpoint.pick(random);
+                if ((endpoint == Endpoint.UPDATE_EXPENSE || endpoint == Endpoint.DELETE_EXPENSE) && created.isEmpty()) {
+                    endpoint = Endpoint.ADD_EXPENSE;
+                }
+                long start = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = call(endpoint, random);
+                } catch (IOException | RuntimeException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                if (ok) {
+                    stats.get(endpoint).record(System.nanoTime() - start);
+                } else {
+                    stats.get(endpoint).error();
+                }
+            }
+            return null;
+        }
+
+        private boolean call(Endpoint endpoint, ThreadLocalRandom random) throws IOException, InterruptedException {
+            switch (endpoint) {
+                case LOGIN -> {
+                    HttpResponse<String> response = send(post("/login",
+                            mapper.writeValueAsString(Map.of("userName", userName, "password", PASSWORD)), false));
+                    if (response.statusCode() != 200 || response.body().isEmpty() || response.body().equals("fail")) {
+                        return false;
+                    }
+                    token = response.body();
+                    return true;
+                }
+                case GET_BUDGET -> {
+                    return send(request("/api/budgets").GET().build()).statusCode() == 200;
+                }
+                case LIST_EXPENSES -> {
+                    // follows the previous page half of the time, like a user scrolling
+                    String path = "/api/expenses?limit=20";
+                    if (nextCursor != null && random.nextBoolean()) {
+                        path += "&cursor=" + URLEncoder.encode(nextCursor, StandardCharsets.US_ASCII);
+                    }
+                    HttpResponse<String> response = send(request(path).GET().build());
+                    if (response.statusCode() != 200) {
+                        return false;
+                    }
+                    JsonNode cursor = mapper.readTree(response.body()).get("nextCursor");
+                    nextCursor = cursor != null && !cursor.isNull() ? cursor.asText() : null;
+                    return true;
+                }
+                case ADD_EXPENSE -> {
+                    HttpResponse<String> response = send(post("/api/expenses", expenseJson(random), true));
+                    if (response.statusCode() != 200) {
+                        return false;
+                    }
+                    created.addLast(mapper.readTree(response.body()).get("expenseid").asLong());
+                    return true;
+                }
+                case UPDATE_EXPENSE -> {
+                    long id = created.peekLast();
+                    return send(request("/api/expenses/" + id)
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString(expenseJson(random)))
+                            .build()).statusCode() == 200;
+                }
+                case DELETE_EXPENSE -> {
+                    long id = created.removeFirst();
+                    return send(request("/api/expenses/" + id).DELETE().build()).statusCode() == 200;
+                }
+            }
+            return false;
+        }
+
+        private String expenseJson(ThreadLocalRandom random) throws IOException {
+            return mapper.writeValueAsString(Map.of(
+                    "amount", 1 + random.nextInt(500),
+                    "date", System.currentTimeMillis(),
+                    "description", "load test",
+                    "type", TYPES[random.nextInt(TYPES.length)],
+                    "payment_Method", random.nextBoolean() ? "card" : "cash"));
+        }
+
+        private HttpRequest post(String path, String json, boolean authenticated) {
+            HttpRequest.Builder builder = authenticated ? request(path) : HttpRequest.newBuilder(base.resolve(path));
+            return builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(base.resolve(path)).header("Authorization", "Bearer " + token);
+        }
+
+        private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    private static List<String> report(Map<Endpoint, EndpointStats> stats) throws IOException {
+        Files.createDirectories(OUT);
+        Path baselineFile = baselineFile();
+        Properties baseline = loadBaseline(baselineFile);
+        boolean gated = !baseline.isEmpty();
+        String defaultErrorRate = baseline.getProperty("error-rate", System.getProperty("load.error-rate", "0"));
+        double tolerance = Double.parseDouble(baseline.getProperty("tolerance", "0.25"));
+        Properties measured = new Properties();
+        List<String> lines = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-16s %8s %9s %9s %9s %9s %9s %8s",
+                "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors"));
+        for (EndpointStats s : stats.values()) {
+            double throughput = s.throughput(SECONDS);
+            double p99 = s.percentileMillis(99);
+            lines.add(String.format(Locale.ROOT, "%-16s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %7.2f%%",
+                    s.name(), s.count(), throughput, s.percentileMillis(50), s.percentileMillis(90), p99,
+                    s.maxMillis(), s.errorRate() * 100));
+            s.writeDistribution(OUT.resolve(s.name() + ".hgrm"));
+
+            measured.setProperty(s.name() + ".throughput", String.format(Locale.ROOT, "%.1f", throughput));
+            measured.setProperty(s.name() + ".p99-ms", String.format(Locale.ROOT, "%.2f", p99));
+            measured.setProperty(s.name() + ".error-rate", String.format(Locale.ROOT, "%.4f", s.errorRate()));
+
+            String maxErrorRate = baseline.getProperty(s.name() + ".error-rate", defaultErrorRate);
+            if (s.errorRate() > Double.parseDouble(maxErrorRate)) {
+                failures.add(String.format(Locale.ROOT, "%s error rate %.4f is above %s", s.name(), s.errorRate(), maxErrorRate));
+            }
+            if (!gated) {
+                continue;
+            }
+            String minThroughput = baseline.getProperty(s.name() + ".throughput");
+            if (minThroughput != null && throughput < Double.parseDouble(minThroughput) * (1 - tolerance)) {
+                failures.add(String.format(Locale.ROOT, "%s throughput %.1f req/s is below baseline %s", s.name(), throughput, minThroughput));
+            }
+            String maxP99 = baseline.getProperty(s.name() + ".p99-ms");
+            if (maxP99 != null && p99 > Double.parseDouble(maxP99) * (1 + tolerance)) {
+                failures.add(String.format(Locale.ROOT, "%s p99 %.2f ms is above baseline %s ms", s.name(), p99, maxP99));
+            }
+        }
+
+        if (gated) {
+            lines.add("compared against " + baselineFile);
+        } else {
+            lines.add("no baseline at " + baselineFile + ", only error rates were checked;"
+                    + " copy " + OUT.resolve("baseline.properties") + " there to record one");
+        }
+        Files.write(OUT.resolve("report.txt"), lines);
+        try (OutputStream out = Files.newOutputStream(OUT.resolve("baseline.properties"))) {
+            measured.store(out, String.format(Locale.ROOT, "measured with %d users, %d expenses each, %d clients for %d s",
+                    USERS, EXPENSES, CLIENTS, SECONDS));
+        }
+        lines.forEach(System.out::println);
+        return failures;
+    }
+
+    private static Path baselineFile() throws IOException {
+        String file = System.getProperty("load.baseline");
+        if (file != null) {
+            return Path.of(file);
+        }
+        String machine = System.getProperty("load.machine");
+        if (machine == null) {
+            machine = InetAddress.getLocalHost().getHostName();
+        }
+        return BASELINES.resolve(machine.toLowerCase(Locale.ROOT) + ".properties");
+    }
+
+    private static Properties loadBaseline(Path file) throws IOException {
+        Properties baseline = new Properties();
+        if (System.getProperty("load.baseline") != null || Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                baseline.load(in);
+            }
+        }
+        return baseline;
+    }
+}
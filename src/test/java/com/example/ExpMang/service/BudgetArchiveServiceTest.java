@@ -0,0 +1,173 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.BudgetView;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.ExpenseCursor;
+import com.example.ExpMang.model.ExpensePage;
+import com.example.ExpMang.model.ExpenseQuery;
+import com.example.ExpMang.model.ExpenseView;
+import com.example.ExpMang.model.RollupDimension;
+import com.example.ExpMang.model.SpendingRollup;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.example.ExpMang.repo.SpendingRollupRepo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BudgetArchiveServiceTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveDir(DynamicPropertyRegistry registry) {
+        registry.add("expmang.archive.dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private BudgetArchiveService archiveService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private SpendingRollupRepo rollupRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void closedPeriodIsArchivedAndStillReadable() {
+        AuthUser user = fixtures.user("archivist");
+        long closed = budgetService.createBudget(TestFixtures.budget(1000), user).getBudgetId();
+        String[] types = {"food", "rent", "food", "travel", "food", "rent", "food"};
+        for (int i = 0; i < types.length; i++) {
+            // two expenses share a date and one has none, so the cursor's tie-breaking is exercised
+            Date date = i == 6 ? null : new Date(Math.min(i, 4) * 86_400_000L);
+            expenseService.addExpense(TestFixtures.expense(10 + i, types[i], date), user);
+        }
+        List<Long> all = readAll(user, closed, null);
+        List<Long> food = readAll(user, closed, "food");
+        assertEquals(types.length, all.size());
+        assertEquals(4, food.size());
+
+        long current = budgetService.createBudget(TestFixtures.budget(2000), user).getBudgetId();
+        Expense kept = expenseService.addExpense(TestFixtures.expense(99, "food", new Date()), user);
+
+        List<BudgetView> periods = budgetService.getPeriods(user);
+        assertEquals(List.of(current, closed), periods.stream().map(BudgetView::budgetid).toList());
+        assertNull(periods.get(0).closedAt());
+        assertNotNull(periods.get(1).closedAt());
+        assertEquals(List.of(kept.getExpenseId()), readAll(user, null, null));
+
+        assertFalse(archiveService.archive(current), "the current period stays in the table");
+        assertTrue(archiveService.archive(closed));
+        assertFalse(archiveService.archive(closed));
+        assertTrue(Files.exists(archiveDir.resolve(Long.toString(user.id())).resolve("budget-" + closed + ".ndjson.gz")));
+        assertEquals(1, expenseRepo.findByBudgetUserUserid(user.id()).size());
+        assertTrue(budgetService.getPeriods(user).get(1).archived());
+
+        // the same pages, now served from the file
+        assertEquals(all, readAll(user, closed, null));
+        assertEquals(food, readAll(user, closed, "food"));
+        ExpenseView archived = expenseService.getExpenseById(all.get(0), user);
+        assertEquals(all.get(0), archived.expenseid());
+        assertEquals(15, archived.amount());
+
+        AuthUser intruder = fixtures.user("archive-intruder");
+        assertNull(expenseService.getExpenseById(all.get(0), intruder));
+        assertNull(expenseService.getExpensePage(intruder, closed, new ExpenseQuery(null, null, null, null, null, 10)));
+
+        // archived periods keep their rollups, there are no rows left to rebuild them from
+        rollupService.rebuildAll();
+        assertEquals(types.length, rollupRepo.findByIdBudgetid(closed).stream()
+                .filter(r -> r.getId().getDimension() == RollupDimension.CATEGORY)
+                .mapToLong(SpendingRollup::getCount)
+                .sum());
+    }
+
+    @Test
+    void closedPeriodStaysWritableUntilArchived() {
+        AuthUser user = fixtures.user("archive-late-edit");
+        long closed = budgetService.createBudget(TestFixtures.budget(1000), user).getBudgetId();
+        Expense edited = expenseService.addExpense(TestFixtures.expense(10, "food", new Date()), user);
+        Expense deleted = expenseService.addExpense(TestFixtures.expense(20, "rent", new Date()), user);
+        long current = budgetService.createBudget(TestFixtures.budget(2000), user).getBudgetId();
+
+        assertNotNull(expenseService.updateExpense(edited.getExpenseId(), TestFixtures.expense(15, "travel", new Date()), user));
+        expenseService.deleteExpense(deleted.getExpenseId(), user);
+        assertEquals(15, budgetService.findPeriod(user, closed).orElseThrow().amountUsed());
+        assertEquals(0, budgetService.findPeriod(user, current).orElseThrow().amountUsed());
+        assertEquals(List.of("travel:15"), rollupRepo.findByIdBudgetid(closed).stream()
+                .filter(r -> r.getId().getDimension() == RollupDimension.CATEGORY && r.getCount() > 0)
+                .map(r -> r.getId().getBucket() + ":" + r.getTotal())
+                .toList());
+
+        // read-only once the rows have moved to the file
+        assertTrue(archiveService.archive(closed));
+        assertNull(expenseService.updateExpense(edited.getExpenseId(), TestFixtures.expense(1, "food", new Date()), user));
+        expenseService.deleteExpense(edited.getExpenseId(), user);
+        assertEquals(15, expenseService.getExpenseById(edited.getExpenseId(), user).amount());
+    }
+
+    @Test
+    void missReadsNoArchiveOfAPeriodClosedBeforeTheId() throws Exception {
+        AuthUser user = fixtures.user("archive-miss");
+        long closed = budgetService.createBudget(TestFixtures.budget(1000), user).getBudgetId();
+        long archived = expenseService.addExpense(TestFixtures.expense(10, "food", new Date()), user).getExpenseId();
+        budgetService.createBudget(TestFixtures.budget(1000), user);
+        assertTrue(archiveService.archive(closed));
+        assertEquals(archived, expenseService.getExpenseById(archived, user).expenseid());
+
+        // fails to parse if it is read
+        jdbcTemplate.update("update budget set closedAt = ? where budgetid = ?", new Date(0), closed);
+        Files.writeString(archiveDir.resolve(Long.toString(user.id())).resolve("budget-" + closed + ".ndjson.gz"), "not gzip");
+        assertNull(expenseService.getExpenseById(IdGenerator.shared().nextId(), user));
+    }
+
+    private List<Long> readAll(AuthUser user, Long budgetId, String type) {
+        List<Long> ids = new ArrayList<>();
+        ExpenseCursor after = null;
+        while (true) {
+            ExpensePage page = expenseService.getExpensePage(user, budgetId, new ExpenseQuery(null, null, type, null, after, 3));
+            page.items().forEach(e -> ids.add(e.expenseid()));
+            if (page.nextCursor() == null) {
+                return ids;
+            }
+            after = ExpenseCursor.decode(page.nextCursor());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "expmang.ratelimit.enabled=false",
+        "expmang.events.max-per-user=2",
+        "expmang.events.max-connections=4",
+        "expmang.events.change-log.enabled=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EventStreamServiceTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    @Autowired
+    private DataChangeLog dataChangeLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void streamsCommittedChangesAndAlertsOncePerThreshold() throws Exception {
+        String auth = fixtures.bearer("streamer");
+        mvc.perform(post("/api/budgets").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":100,\"startDate\":\"2026-10-01\",\"endDate\":\"2026-10-31\"}"))
+                .andExpect(status().isOk());
+
+        MvcResult stream = open(auth);
+        awaitContent(stream, body -> body.contains("event:budget") && body.contains("\"amountUsed\":0"));
+
+        mvc.perform(post("/api/expenses").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":85,\"date\":\"2026-10-02\",\"description\":\"rent\",\"type\":\"home\",\"payment_Method\":\"card\"}"))
+                .andExpect(status().isOk());
+        String body = awaitContent(stream, content -> content.contains("event:alert"));
+        assertTrue(body.contains("\"type\":\"added\""), body);
+        assertTrue(body.contains("\"description\":\"rent\""), body);
+        assertTrue(body.contains("\"amountUsed\":85"), body);
+        assertTrue(body.contains("\"threshold\":80"), body);
+        assertFalse(body.contains("\"threshold\":100"), body);
+
+        // 80% was already reached, only 100% alerts now
+        String id = body.replaceAll("(?s).*\"expenseid\":(\\d+).*", "$1");
+        mvc.perform(post("/api/expenses").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":20,\"date\":\"2026-10-03\",\"description\":\"food\",\"type\":\"food\",\"payment_Method\":\"cash\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/api/expenses/" + id).header("Authorization", auth)).andExpect(status().isOk());
+        body = awaitContent(stream, content -> content.contains("\"type\":\"deleted\"") && content.contains("\"amountUsed\":20"));
+        assertEquals(1, count(body, "\"threshold\":80"), body);
+        assertEquals(1, count(body, "\"threshold\":100"), body);
+        assertTrue(body.contains("\"expenseid\":" + id), body);
+    }
+
+    @Test
+    void changesCommittedOnAnotherNodeArriveThroughTheChangeLog() throws Exception {
+        AuthUser user = fixtures.userWithBudget("remote-streamer", 100);
+        MvcResult stream = open(fixtures.bearerFor("remote-streamer"));
+        awaitContent(stream, body -> body.contains("\"amountUsed\":0"));
+
+        // a write taken by another process, which this one's budget cache and streams know nothing of
+        jdbcTemplate.update("update budget set amountUsed = 90 where user_userid = ?", user.id());
+        jdbcTemplate.update("insert into data_change (changeid, userid, kind, entityid, origin) values (?, ?, 'BUDGET_UPDATED', null, ?)",
+                IdGenerator.shared().nextId(), user.id(), 42L);
+        dataChangeLog.poll();
+        dataChangeLog.poll();
+
+        String body = awaitContent(stream, content -> content.contains("event:alert"));
+        assertTrue(body.contains("\"amountUsed\":90"), body);
+        assertEquals(1, count(body, "\"threshold\":80"), body);
+    }
+
+    @Test
+    void oldestStreamOfAUserIsClosedAndTheNodeLimitIsHeld() throws Exception {
+        String auth = fixtures.bearer("many-tabs");
+        int before = eventStreamService.connections();
+        MvcResult first = open(auth);
+        open(auth);
+        open(auth);
+        assertEquals(before + 2, eventStreamService.connections());
+        // fails unless the stream was completed
+        first.getAsyncResult(5000);
+
+        for (int i = 0; eventStreamService.connections() < 4; i++) {
+            open(fixtures.bearer("tab-" + i));
+        }
+        mvc.perform(get("/api/events").header("Authorization", fixtures.bearer("one-tab-too-many")))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    private MvcResult open(String auth) throws Exception {
+        return mvc.perform(get("/api/events").header("Authorization", auth))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static String awaitContent(MvcResult stream, Predicate<String> condition) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String body = stream.getResponse().getContentAsString();
+            if (condition.test(body)) {
+                return body;
+            }
+            Thread.sleep(50);
+        }
+        return fail("No matching events in " + stream.getResponse().getContentAsString());
+    }
+
+    private static int count(String body, String needle) {
+        return body.split(Pattern.quote(needle), -1).length - 1;
+    }
+}
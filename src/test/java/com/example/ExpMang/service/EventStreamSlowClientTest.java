@@ -0,0 +1,114 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Expense;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+// one sender thread, small socket buffers and a short write timeout, so a client that does not read blocks
+// the only sender within a few events and the test need not wait long for the write to give up
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "expmang.ratelimit.enabled=false",
+        "expmang.events.sender-threads=1",
+        "server.tomcat.connection-timeout=2s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EventStreamSlowClientTest {
+
+    @TestConfiguration
+    static class SmallSendBuffers {
+
+        @Bean
+        TomcatConnectorCustomizer smallSendBuffer() {
+            return connector -> connector.setProperty("socket.txBufSize", "4096");
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void clientThatStopsReadingIsDroppedAndFreesTheSender() throws Exception {
+        AuthUser slow = fixtures.userWithBudget("never-reads", Integer.MAX_VALUE);
+        fixtures.userWithBudget("reads", 100);
+        int before = eventStreamService.connections();
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/events HTTP/1.1\r\nHost: localhost\r\nAuthorization: "
+                    + fixtures.bearerFor("never-reads") + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            await(() -> eventStreamService.connections() > before, "the stream to open");
+
+            // until a write to it has blocked for the timeout and the connection is dropped
+            String description = "x".repeat(250);
+            for (int i = 0; i < 1000 && eventStreamService.connections() > before; i++) {
+                expenseService.addExpense(withDescription(description), slow);
+            }
+            assertEquals(before, eventStreamService.connections(), "the stream was never dropped");
+
+            // served by the one sender, once the blocked write has given up
+            MvcResult stream = mvc.perform(get("/api/events").header("Authorization", fixtures.bearerFor("reads")))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            await(() -> stream.getResponse().getContentAsString().contains("event:budget"), "the other stream's first event");
+        }
+    }
+
+    private static Expense withDescription(String description) {
+        Expense expense = TestFixtures.expense(1, "food", new Date());
+        expense.setDescription(description);
+        return expense;
+    }
+
+    private static void await(Check condition, String what) throws Exception {
+        for (int i = 0; i < 200; i++) {
+            if (condition.holds()) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Timed out waiting for " + what);
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        boolean holds() throws Exception;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.ImportResult;
+import com.example.ExpMang.repo.ExpenseRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs on its own in-memory database with lazy query execution, so H2 hands rows over as the cursor advances
+ * instead of materializing the result the way it would for a small query.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:export;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LAZY_QUERY_EXECUTION=1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExpenseExportServiceTest {
+
+    private static final int ROWS = 150_000;
+
+    private static final long SAMPLE_EVERY_BYTES = 4L * 1024 * 1024;
+
+    private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+
+    @Autowired
+    private ExpenseExportService exportService;
+
+    @Autowired
+    private ExpenseImportService importService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void exportMemoryStaysFlatWithRowCount() throws Exception {
+        AuthUser user = fixtures.user("export-large");
+        long budgetId = budgetService.createBudget(TestFixtures.budget(1_000_000), user).getBudgetId();
+        seed(budgetId);
+
+        HeapSamplingStream out = new HeapSamplingStream();
+        for (ExpenseImportService.Format format : ExpenseImportService.Format.values()) {
+            out.baseline();
+            assertEquals(ROWS, exportService.export(user, format, out));
+            long growth = out.peakUsed - out.baselineUsed;
+            assertTrue(out.bytes > 2 * MAX_HEAP_GROWTH_BYTES, "wrote only " + out.bytes + " bytes");
+            assertTrue(growth < MAX_HEAP_GROWTH_BYTES,
+                    format + " export of " + out.bytes + " bytes grew the heap by " + growth + " bytes");
+        }
+    }
+
+    @Test
+    void gzippedCsvExportImportsBack() throws Exception {
+        AuthUser source = fixtures.user("export-source");
+        budgetService.createBudget(TestFixtures.budget(1_000_000), source);
+        Date date = new Date(1_750_000_000_000L);
+        List<Expense> expenses = List.of(
+                expense(12, "food", "lunch, with \"friends\"", date),
+                expense(30, "travel", null, null),
+                expense(7, "food", "coffee", new Date(date.getTime() + 1)));
+        StringBuilder ndjson = new StringBuilder();
+        for (Expense expense : expenses) {
+            ndjson.append(objectMapper.writeValueAsString(expense)).append('\n');
+        }
+        importService.importExpenses(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+                ExpenseImportService.Format.NDJSON, source);
+
+        MvcResult started = mvc.perform(get("/api/expenses/export")
+                        .param("format", "csv")
+                        .header("Authorization", fixtures.bearerFor(source.userName()))
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] compressed = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"expenses.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] csv = new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes();
+
+        AuthUser target = fixtures.user("export-target");
+        budgetService.createBudget(TestFixtures.budget(1_000_000), target);
+        ImportResult result = importService.importExpenses(new ByteArrayInputStream(csv), ExpenseImportService.Format.CSV, target);
+        assertEquals(expenses.size(), result.imported());
+        assertEquals(0, result.rejected());
+        assertEquals(contents(source), contents(target));
+    }
+
+    // the fields an import carries over, in a stable order
+    private List<String> contents(AuthUser user) {
+        List<String> rows = new ArrayList<>();
+        expenseRepo.findByBudgetUserUserid(user.id()).stream()
+                .sorted(Comparator.comparing(Expense::getAmount))
+                .forEach(e -> rows.add(e.getAmount() + "|" + (e.getDate() == null ? null : e.getDate().getTime())
+                        + "|" + e.getDescription() + "|" + e.getType() + "|" + e.getPayment_Method()));
+        return rows;
+    }
+
+    private void seed(long budgetId) {
+        String description = "x".repeat(250);
+        List<Object[]> batch = new ArrayList<>();
+        IdGenerator ids = IdGenerator.shared();
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(new Object[]{ids.nextId(), i % 500, new Timestamp(1_700_000_000_000L + i * 60_000L),
+                    description, "type" + (i % 7), "card", budgetId});
+            if (batch.size() == 5_000) {
+                insert(batch);
+            }
+        }
+        insert(batch);
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("insert into expense (expenseid, amount, date, description, type, payment_Method, budget_budgetid) " +
+                "values (?, ?, ?, ?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    private static Expense expense(int amount, String type, String description, Date date) {
+        Expense expense = TestFixtures.expense(amount, type, date);
+        expense.setDescription(description);
+        return expense;
+    }
+
+    /**
+     * Discards what is written and, every few megabytes, measures the live heap after a full collection.
+     */
+    private static final class HeapSamplingStream extends OutputStream {
+
+        long bytes;
+        long baselineUsed;
+        long peakUsed;
+        private long nextSample;
+
+        void baseline() {
+            bytes = 0;
+            nextSample = SAMPLE_EVERY_BYTES;
+            baselineUsed = used();
+            peakUsed = baselineUsed;
+        }
+
+        @Override
+        public void write(int b) {
+            count(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count(len);
+        }
+
+        private void count(int len) {
+            bytes += len;
+            if (bytes >= nextSample) {
+                nextSample += SAMPLE_EVERY_BYTES;
+                peakUsed = Math.max(peakUsed, used());
+            }
+        }
+
+        private static long used() {
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
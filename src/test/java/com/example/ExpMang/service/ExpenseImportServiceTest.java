@@ -0,0 +1,113 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.ImportResult;
+import com.example.ExpMang.model.SpendingSummary;
+import com.example.ExpMang.repo.ExpenseRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "expmang.ratelimit.enabled=false")
+@ActiveProfiles("test")
+class ExpenseImportServiceTest {
+
+    @Autowired
+    private ExpenseImportService importService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void csvRowsAreParsedAndBadRowsReportedByLine() throws Exception {
+        AuthUser user = fixtures.userWithBudget("import-csv", Integer.MAX_VALUE);
+        ImportResult result = importCsv(user, """
+                amount,date,description,type,payment_Method
+                12,2026-10-02,"lunch, with ""friends""\",food,card
+
+                30,,,travel,cash
+                5,2026-10-03,too,many,columns,here
+                abc,2026-10-04,coffee,food,card
+                7,2026-10-05,"unterminated,food,card
+                """);
+
+        assertEquals(2, result.imported());
+        assertEquals(3, result.rejected());
+        assertEquals(List.of(5L, 6L, 7L), result.errors().stream().map(ImportResult.RowError::line).toList());
+        assertEquals("Unterminated quoted field", result.errors().get(2).message());
+        assertTrue(expenseRepo.findByBudgetUserUserid(user.id()).stream()
+                .anyMatch(e -> "lunch, with \"friends\"".equals(e.getDescription()) && e.getDate() != null));
+        assertEquals(42, budgetService.getBudget(user).amountUsed());
+    }
+
+    @Test
+    void ndjsonRowsAreParsedAndBadRowsReportedByLine() throws Exception {
+        AuthUser user = fixtures.userWithBudget("import-ndjson", Integer.MAX_VALUE);
+        ImportResult result = importNdjson(user, """
+                {"amount":12,"date":"2026-10-02","description":"lunch","type":"food","payment_Method":"card"}
+                {"amount":
+                {"amount":30,"type":"travel","payment_Method":"cash"}
+                """);
+
+        assertEquals(2, result.imported());
+        assertEquals(1, result.rejected());
+        assertEquals(2L, result.errors().get(0).line());
+        assertEquals(42, budgetService.getBudget(user).amountUsed());
+    }
+
+    @Test
+    void rowsThatWouldOverflowTheAmountUsedAreRejectedAndTheRestApplied() throws Exception {
+        AuthUser user = fixtures.userWithBudget("import-overflow", Integer.MAX_VALUE);
+        ImportResult result = importNdjson(user, """
+                {"amount":2000000000,"date":"2026-10-02","type":"rent","payment_Method":"card"}
+                {"amount":2000000000,"date":"2026-10-03","type":"rent","payment_Method":"card"}
+                {"amount":100,"date":"2026-10-04","type":"food","payment_Method":"cash"}
+                """);
+
+        assertEquals(2, result.imported());
+        assertEquals(1, result.rejected());
+        assertEquals(2L, result.errors().get(0).line());
+        assertEquals(2_000_000_100, budgetService.getBudget(user).amountUsed());
+
+        SpendingSummary summary = rollupService.summarize(user);
+        assertEquals(new SpendingSummary.BucketTotal(2_000_000_000L, 1), summary.byCategory().get("rent"));
+        assertEquals(new SpendingSummary.BucketTotal(100, 1), summary.byCategory().get("food"));
+        assertEquals(new SpendingSummary.BucketTotal(2_000_000_000L, 1), summary.byPaymentMethod().get("card"));
+        assertEquals(2, expenseRepo.findByBudgetUserUserid(user.id()).size());
+    }
+
+    @Test
+    void nothingIsImportedWithoutABudget() throws Exception {
+        AuthUser user = fixtures.user("import-no-budget");
+        assertNull(importNdjson(user, "{\"amount\":1}\n"));
+    }
+
+    private ImportResult importCsv(AuthUser user, String body) throws Exception {
+        return importService.importExpenses(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                ExpenseImportService.Format.CSV, user);
+    }
+
+    private ImportResult importNdjson(AuthUser user, String body) throws Exception {
+        return importService.importExpenses(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                ExpenseImportService.Format.NDJSON, user);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.model.IngestStatus;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "expmang.ingest.write-behind.enabled=true")
+@ActiveProfiles("test")
+class ExpenseIngestServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 100;
+
+    @Autowired
+    private ExpenseIngestService ingestService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Test
+    void burstIsGroupCommittedAndFlushedOnStop() throws Exception {
+        List<AuthUser> users = List.of(fixtures.userWithBudget("ingest-a", 1_000_000), fixtures.userWithBudget("ingest-b", 1_000_000));
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Map<Long, AuthUser> owners = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            AuthUser principal = users.get(t % users.size());
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    IngestStatus accepted = ingestService.accept(expense(3), principal);
+                    assertEquals(IngestStatus.State.PENDING, accepted.state());
+                    owners.put(accepted.expenseid(), principal);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        // stopping drains whatever is still queued before returning
+        ingestService.stop();
+        try {
+            assertEquals(THREADS * PER_THREAD, owners.size());
+            owners.forEach((id, owner) ->
+                    assertEquals(IngestStatus.State.COMMITTED, ingestService.status(id, owner).state()));
+            assertNull(ingestService.status(owners.keySet().iterator().next(), new AuthUser(-1, "intruder")));
+
+            int perUser = THREADS / users.size() * PER_THREAD;
+            for (AuthUser principal : users) {
+                assertEquals(perUser, expenseRepo.findByBudgetUserUserid(principal.id()).size());
+                Budget budget = budgetRepo.findById(budgetService.findBudgetId(principal).orElseThrow()).orElseThrow();
+                assertEquals(perUser * 3, budget.getAmountUsed());
+            }
+
+            IngestQueueFullException rejected = assertThrows(IngestQueueFullException.class,
+                    () -> ingestService.accept(expense(1), users.get(0)));
+            assertEquals("1", rejected.getHeaders().getFirst("Retry-After"));
+        } finally {
+            ingestService.start();
+        }
+    }
+
+    private static Expense expense(int amount) {
+        return TestFixtures.expense(amount, "food", new Date());
+    }
+}
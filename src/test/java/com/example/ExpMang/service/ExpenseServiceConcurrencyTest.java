@@ -0,0 +1,115 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.model.AuthUser;
+import com.example.ExpMang.model.Budget;
+import com.example.ExpMang.model.Expense;
+import com.example.ExpMang.repo.BudgetRepo;
+import com.example.ExpMang.repo.ExpenseRepo;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ExpenseServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 50;
+    private static final int BENCHMARK_ROUNDS = Integer.getInteger("benchmark.write-rounds", 200);
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private BudgetRepo budgetRepo;
+
+    @Autowired
+    private ExpenseRepo expenseRepo;
+
+    @Test
+    void concurrentWritesKeepBudgetTotalExact() throws Exception {
+        AuthUser principal = fixtures.userWithBudget("concurrency", 1_000_000);
+        long budgetId = budgetRepo.findCurrentByUserid(principal.id()).getBudgetId();
+
+        writeRounds(principal, ROUNDS);
+
+        Budget reloaded = budgetRepo.findById(budgetId).orElseThrow();
+        int expenseTotal = expenseRepo.findByBudgetUserUserid(principal.id()).stream().mapToInt(Expense::getAmount).sum();
+        assertEquals(THREADS * ROUNDS * 20, reloaded.getAmountUsed());
+        assertEquals(reloaded.getAmountUsed(), expenseTotal);
+    }
+
+    /**
+     * The same contended writes on one budget, timed after a warm-up and written to
+     * {@code target/benchmark/contended-writes.txt}. Runs only with {@code mvn test -Pbenchmark}; sized with
+     * {@code -Dbenchmark.write-rounds}, and fails below {@code -Dbenchmark.min-writes-per-second} when that is given.
+     */
+    @Test
+    @Tag("benchmark")
+    void contendedWriteThroughputOnOneBudget() throws Exception {
+        AuthUser principal = fixtures.userWithBudget("concurrency-benchmark", Integer.MAX_VALUE);
+        writeRounds(principal, BENCHMARK_ROUNDS / 4);
+
+        long start = System.nanoTime();
+        writeRounds(principal, BENCHMARK_ROUNDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int writes = THREADS * BENCHMARK_ROUNDS * 4;
+        double writesPerSecond = writes / seconds;
+
+        String line = String.format(Locale.ROOT, "%d writes from %d threads on one budget in %.2f s: %.0f writes/s",
+                writes, THREADS, seconds, writesPerSecond);
+        Path out = Path.of("target", "benchmark", "contended-writes.txt");
+        Files.createDirectories(out.getParent());
+        Files.writeString(out, line + System.lineSeparator());
+        System.out.println(line);
+
+        String floor = System.getProperty("benchmark.min-writes-per-second");
+        if (floor != null) {
+            assertTrue(writesPerSecond >= Double.parseDouble(floor), "throughput fell below " + floor + ": " + line);
+        }
+    }
+
+    // every round adds 10 and 5, moves the 10 to 20 and deletes the 5: four writes and +20 per round
+    private void writeRounds(AuthUser principal, int rounds) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    Expense kept = expenseService.addExpense(expense(10), principal);
+                    Expense dropped = expenseService.addExpense(expense(5), principal);
+                    expenseService.updateExpense(kept.getExpenseId(), expense(20), principal);
+                    expenseService.deleteExpense(dropped.getExpenseId(), principal);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+
+    private static Expense expense(int amount) {
+        return TestFixtures.expense(amount, "test", new Date());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ExpMang.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void idsAreUniqueAndMonotonicAcrossThreads() throws Exception {
+        IdGenerator generator = new IdGenerator(3);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                long[] ids = new long[IDS_PER_THREAD];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+
+        long[] all = new long[THREADS * IDS_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] ids = future.get();
+            for (int i = 1; i < ids.length; i++) {
+                assertTrue(ids[i] > ids[i - 1], "ids must grow within a thread");
+            }
+            System.arraycopy(ids, 0, all, offset, ids.length);
+            offset += ids.length;
+        }
+        pool.shutdown();
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "duplicate id");
+        }
+        assertTrue(all[all.length - 1] < (1L << 53), "ids must stay JavaScript-safe");
+    }
+
+    @Test
+    void nodesNeverCollide() {
+        IdGenerator first = new IdGenerator(1);
+        IdGenerator second = new IdGenerator(2);
+        for (int i = 0; i < 10_000; i++) {
+            long a = first.nextId();
+            long b = second.nextId();
+            assertNotEquals(a, b);
+            assertEquals(1, (a >>> IdGenerator.SEQUENCE_BITS) & IdGenerator.MAX_NODE);
+            assertEquals(2, (b >>> IdGenerator.SEQUENCE_BITS) & IdGenerator.MAX_NODE);
+        }
+    }
+
+    @Test
+    void idsCarryTheirCreationTime() {
+        long before = System.currentTimeMillis();
+        long id = new IdGenerator(4).nextId();
+        long after = System.currentTimeMillis();
+
+        assertTrue(IdGenerator.timestampOf(id) >= before && IdGenerator.timestampOf(id) <= after);
+        assertTrue(IdGenerator.firstIdAt(before) <= id && id < IdGenerator.firstIdAt(after + 1));
+        assertTrue(IdGenerator.minIdAfter(id) < IdGenerator.firstIdAt(before));
+        // ids from before the generator existed bound nothing
+        assertEquals(0, IdGenerator.minIdAfter(42));
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(IdGenerator.MAX_NODE + 1));
+    }
+
+    @Test
+    void refusesToStartWithoutANodeId() {
+        assertThrows(IllegalStateException.class, () -> new IdGenerator(-1));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.ExpMang.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtKeyRingTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void nodesSharingTheKeysetVerifyEachOthersTokensAcrossRestarts() throws Exception {
+        Path file = dir.resolve("keys/jwt.json");
+        JWTService first = jwtService(keyRing(file, Duration.ofDays(1), Duration.ofMinutes(5), Duration.ofMinutes(1)));
+        JWTService second = jwtService(keyRing(file, Duration.ofDays(1), Duration.ofMinutes(5), Duration.ofMinutes(1)));
+
+        String token = first.generateToken("alice");
+        assertEquals("alice", second.extractUserName(token));
+        assertEquals(kid(token), kid(second.generateToken("bob")));
+
+        JWTService restarted = jwtService(keyRing(file, Duration.ofDays(1), Duration.ofMinutes(5), Duration.ofMinutes(1)));
+        assertEquals("alice", restarted.extractUserName(token));
+
+        JWTService elsewhere = jwtService(keyRing(dir.resolve("other.json"), Duration.ofDays(1), Duration.ofMinutes(5), Duration.ofMinutes(1)));
+        assertNull(elsewhere.extractUserName(token));
+    }
+
+    @Test
+    void rotatedKeySignsOnceActiveWhileOlderKeysKeepVerifying() throws Exception {
+        Path file = dir.resolve("jwt.json");
+        JwtKeyRing firstKeys = keyRing(file, Duration.ofSeconds(2), Duration.ofSeconds(1), Duration.ofMillis(100));
+        JwtKeyRing secondKeys = keyRing(file, Duration.ofSeconds(2), Duration.ofSeconds(1), Duration.ofMillis(100));
+        JWTService first = jwtService(firstKeys);
+        JWTService second = jwtService(secondKeys);
+        String before = first.generateToken("alice");
+
+        Thread.sleep(1200);
+        firstKeys.refresh();
+        secondKeys.refresh();
+        // added by one of them but not active yet, both still sign with the old key
+        assertEquals(kid(before), kid(first.generateToken("alice")));
+        assertEquals(kid(before), kid(second.generateToken("alice")));
+
+        Thread.sleep(1200);
+        String after = second.generateToken("alice");
+        assertNotEquals(kid(before), kid(after));
+        assertNotNull(first.verify(after));
+        assertNotNull(second.verify(before));
+        assertEquals(kid(after), kid(first.generateToken("alice")));
+    }
+
+    @Test
+    void activationMustOutlastRefresh() {
+        assertThrows(IllegalArgumentException.class,
+                () -> keyRing(dir.resolve("jwt.json"), Duration.ofDays(1), Duration.ofMinutes(1), Duration.ofMinutes(1)));
+    }
+
+    private static JwtKeyRing keyRing(Path file, Duration rotation, Duration activation, Duration refresh) {
+        return new JwtKeyRing(file.toString(), rotation, activation, refresh, objectMapper);
+    }
+
+    private static JWTService jwtService(JwtKeyRing keys) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new JWTService(0, keys, new IdGenerator(0), new TokenRevocationService(null, null, null, 10_000, registry), registry);
+    }
+
+    private static String kid(String token) throws Exception {
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        return objectMapper.readTree(header).get("kid").asText();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.ExpMang.service;
+
+import com.example.ExpMang.TestFixtures;
+import com.example.ExpMang.repo.RevokedTokenRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "expmang.ratelimit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TokenRevocationServiceTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JWTService jwtService;
+
+    @Autowired
+    private TokenRevocationService revocations;
+
+    @Autowired
+    private RevokedTokenRepo revokedTokenRepo;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void logoutRevokesOnlyTheTokenInUse() throws Exception {
+        fixtures.user("logout-alice");
+        String phone = jwtService.generateToken("logout-alice");
+        String laptop = jwtService.generateToken("logout-alice");
+
+        mvc.perform(budgets(phone)).andExpect(status().isOk());
+        mvc.perform(post("/logout").header("Authorization", "Bearer " + phone)).andExpect(status().isNoContent());
+
+        mvc.perform(budgets(phone)).andExpect(status().isUnauthorized());
+        mvc.perform(budgets(laptop)).andExpect(status().isOk());
+        assertEquals(1, revokedTokenRepo.count());
+
+        // a restarted node reads the denylist back from the database
+        revocations.load();
+        assertNull(jwtService.verify(phone));
+        assertNotNull(jwtService.verify(laptop));
+    }
+
+    @Test
+    void logoutEverywhereRevokesEveryTokenIssuedSoFar() throws Exception {
+        fixtures.user("logout-bob");
+        String phone = jwtService.generateToken("logout-bob");
+        String laptop = jwtService.generateToken("logout-bob");
+        Thread.sleep(2);
+
+        mvc.perform(post("/logout").param("everywhere", "true").header("Authorization", "Bearer " + phone))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(budgets(phone)).andExpect(status().isUnauthorized());
+        mvc.perform(budgets(laptop)).andExpect(status().isUnauthorized());
+
+        // logging in again after that gives a working token, within the same second as the logout
+        Thread.sleep(2);
+        String fresh = jwtService.generateToken("logout-bob");
+        mvc.perform(budgets(fresh)).andExpect(status().isOk());
+
+        revocations.load();
+        assertNull(jwtService.verify(laptop));
+        assertNotNull(jwtService.verify(fresh));
+    }
+
+    @Test
+    void logoutNeedsAValidToken() throws Exception {
+        mvc.perform(post("/logout")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/logout").header("Authorization", "Bearer not-a-token")).andExpect(status().isUnauthorized());
+    }
+
+    private static MockHttpServletRequestBuilder budgets(String token) {
+        return get("/api/budgets").header("Authorization", "Bearer " + token);
+    }
+}